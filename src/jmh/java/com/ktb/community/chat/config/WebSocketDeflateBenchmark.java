@@ -0,0 +1,130 @@
+package com.ktb.community.chat.config;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * permessage-deflate 송신 비용(CPU)과 압축 후 크기(대역폭).
+ * 페이로드는 V6 시드 대화(동네수다/취미모임)를 pub/sub 메시지 JSON 으로 만든 것이다.
+ * single: 메시지 1건 프레임, history: 9건을 묶은 JSON 배열 프레임(coalesce/이력 전송).
+ * 크기 비교는 setUp 에서 한 번 출력한다. 실행: gradle jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WebSocketDeflateBenchmark {
+
+    private static final String[][] SEEDED_MESSAGES = {
+            {"동네수다", "loadtest1", "동네 근처 새로 열린 카페 가보신 분 있어요?"},
+            {"동네수다", "loadtest2", "오늘 미세먼지 좀 있어요. 마스크 챙기세요!"},
+            {"동네수다", "loadtest3", "엘리베이터 점검한다는 공지가 붙어 있네요."},
+            {"동네수다", "loadtest4", "오늘 저녁에 산책모임 있나요?"},
+            {"동네수다", "loadtest5", "주말에 플리마켓 나가볼까요?"},
+            {"취미모임", "loadtest2", "러닝크루에 관심 있는 분 계세요?"},
+            {"취미모임", "loadtest3", "주말에 드로잉 클래스 함께 듣는 사람 모집해요."},
+            {"취미모임", "loadtest6", "자전거 타실 분 있으면 메시지 주세요."},
+            {"취미모임", "loadtest-admin", "모임 일정은 캘린더에 정리해둘게요."},
+    };
+
+    @Param({"single", "history"})
+    public String payload;
+
+    @Param({"true", "false"})
+    public boolean contextTakeover;
+
+    private List<ByteBuf> frames;
+    private int next;
+    private EmbeddedChannel channel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < SEEDED_MESSAGES.length; i++) {
+            String[] seeded = SEEDED_MESSAGES[i];
+            messages.add("{\"roomId\":" + (seeded[0].equals("동네수다") ? 1 : 2)
+                    + ",\"messageId\":" + (7394857204871168L + i)
+                    + ",\"senderId\":" + (i + 1)
+                    + ",\"nickName\":\"" + seeded[1] + "\""
+                    + ",\"message\":\"" + seeded[2] + "\""
+                    + ",\"createdAt\":\"2026-01-01T09:" + (10 + i) + ":00Z\"}");
+        }
+        frames = new ArrayList<>();
+        if ("single".equals(payload)) {
+            messages.forEach(message -> frames.add(Unpooled.copiedBuffer(message, StandardCharsets.UTF_8)));
+        } else {
+            frames.add(Unpooled.copiedBuffer("[" + String.join(",", messages) + "]", StandardCharsets.UTF_8));
+        }
+        channel = newChannel();
+
+        // 대역폭: 같은 연결에서 전체 프레임을 한 바퀴 보냈을 때 원본/압축 바이트
+        EmbeddedChannel probe = newChannel();
+        long raw = 0;
+        long compressed = 0;
+        for (ByteBuf frame : frames) {
+            raw += frame.readableBytes();
+            compressed += send(probe, frame);
+        }
+        probe.finishAndReleaseAll();
+        System.out.printf("%n[deflate] payload=%s contextTakeover=%s raw=%d bytes compressed=%d bytes (%.1f%%)%n",
+                payload, contextTakeover, raw, compressed, 100.0 * compressed / raw);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        frames.forEach(ByteBuf::release);
+    }
+
+    @Benchmark
+    public int deflate() {
+        ByteBuf frame = frames.get(next);
+        next = (next + 1) % frames.size();
+        return send(channel, frame);
+    }
+
+    // 운영 설정과 같은 핸드셰이커로 협상한 인코더 (min-bytes 0: 모든 프레임 압축)
+    private EmbeddedChannel newChannel() {
+        PerMessageDeflateServerExtensionHandshaker handshaker = new PerMessageDeflateServerExtensionHandshaker(
+                6, false, PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE, true, false,
+                ChatWebSocketCompression.skipBelow(0));
+        Map<String, String> parameters = new HashMap<>();
+        if (!contextTakeover) {
+            parameters.put("server_no_context_takeover", null);
+        }
+        return new EmbeddedChannel(handshaker
+                .handshakeExtension(new WebSocketExtensionData("permessage-deflate", parameters))
+                .newExtensionEncoder());
+    }
+
+    private static int send(EmbeddedChannel channel, ByteBuf frame) {
+        channel.writeOutbound(new TextWebSocketFrame(frame.retainedDuplicate()));
+        WebSocketFrame encoded = channel.readOutbound();
+        try {
+            return encoded.content().readableBytes();
+        } finally {
+            encoded.release();
+        }
+    }
+}
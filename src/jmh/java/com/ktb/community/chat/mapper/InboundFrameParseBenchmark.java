@@ -0,0 +1,63 @@
+package com.ktb.community.chat.mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ktb.community.chat.dto.ChatInboundFrameDto;
+import com.ktb.community.chat.dto.ChatMessageReqDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 수신 프레임 / Pub/Sub 라우팅 파싱 비용.
+ * mapFrame, treeRouting 은 이전 방식(문자열 -> Map 후 캐스팅, readTree 후 userId 조회)이다.
+ * 실행: gradle jmh (할당량: gradle jmhJar 후 java -jar build/libs/*-jmh.jar InboundFrameParse -prof gc)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InboundFrameParseBenchmark {
+
+    private static final byte[] CHAT_FRAME = "{\"type\":\"chat\",\"roomId\":1,\"senderId\":42,\"message\":\"오늘 저녁에 산책모임 있나요?\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final String READ_EVENT = "{\"type\":\"read\",\"userId\":42,\"roomId\":1,"
+            + "\"lastReadMessageId\":7394857204871168,\"unReadCount\":0}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final InboundFrameReader reader = new InboundFrameReader(objectMapper);
+
+    @Benchmark
+    public ChatMessageReqDto mapFrame() throws IOException {
+        Map<?, ?> map = objectMapper.readValue(new String(CHAT_FRAME, StandardCharsets.UTF_8), Map.class);
+        return ChatMessageReqDto.builder()
+                .roomId(((Number) map.get("roomId")).longValue())
+                .senderId(((Number) map.get("senderId")).longValue())
+                .message((String) map.get("message"))
+                .build();
+    }
+
+    @Benchmark
+    public ChatInboundFrameDto typedFrame() throws IOException {
+        return reader.read(new ByteArrayInputStream(CHAT_FRAME));
+    }
+
+    @Benchmark
+    public long treeRouting() throws IOException {
+        JsonNode node = objectMapper.readTree(READ_EVENT);
+        return node.path("userId").asLong();
+    }
+
+    @Benchmark
+    public Long streamingRouting() {
+        return reader.readLongField(READ_EVENT, "userId");
+    }
+}
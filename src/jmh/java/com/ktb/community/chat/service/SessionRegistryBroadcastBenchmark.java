@@ -0,0 +1,59 @@
+package com.ktb.community.chat.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 한 방에 roomSize 개 세션이 구독 중일 때 메시지 1건을 브로드캐스트하는 비용.
+ * 세션 송신 대기열은 받자마자 해제하는 구독자가 비운다. 호출 스레드에서 보내는 비용을 재기 위해 병렬 fan-out 은 끈다.
+ * 실행: gradle jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionRegistryBroadcastBenchmark {
+
+    private static final long ROOM_ID = 1L;
+    private static final String PAYLOAD = "{\"roomId\":1,\"messageId\":123456789,\"message\":\"안녕하세요 벤치마크 메시지입니다\","
+            + "\"nickName\":\"tester\",\"senderId\":42,\"createdAt\":\"2026-01-01T00:00:00Z\"}";
+
+    @Param({"100", "2000"})
+    public int roomSize;
+
+    private SessionRegistry sessionRegistry;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionRegistry = new SessionRegistry(new SimpleMeterRegistry(), 256, SessionOutbox.OverflowPolicy.DROP_OLDEST,
+                Integer.MAX_VALUE, 1);
+        for (int i = 0; i < roomSize; i++) {
+            String sessionId = "session-" + i;
+            sessionRegistry.registerSession(sessionId, (long) i).getOutbox().asFlux().subscribe(ByteBuf::release);
+            sessionRegistry.subscribe(sessionId, ROOM_ID);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = 0; i < roomSize; i++) {
+            sessionRegistry.removeSession("session-" + i);
+        }
+    }
+
+    @Benchmark
+    public void broadcast() {
+        sessionRegistry.broadcast(ROOM_ID, PAYLOAD);
+    }
+}
@@ -1,7 +1,9 @@
 package com.ktb.community.chat.config;
 
+import com.ktb.community.chat.service.ChatDrainService;
 import com.ktb.community.chat.service.ChatServiceImpl;
 import com.ktb.community.util.JWTUtil;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -18,14 +20,18 @@ import java.nio.charset.StandardCharsets;
 public class ChatWebSocketAuthFilter implements WebFilter {
 
     private static final String CHAT_CONNECT_PATH = "/v1/chat/connect";
+    // 핸드셰이크 시 WebSocketSession 속성으로 복사된다 (ChatWebSocketConfig)
+    public static final String USER_ID_ATTRIBUTE = "chat.userId";
     private static final Logger log = LoggerFactory.getLogger(ChatWebSocketAuthFilter.class);
 
     private final JWTUtil jwtUtil;
     private final ChatServiceImpl chatService;
+    private final ChatDrainService chatDrainService;
 
-    public ChatWebSocketAuthFilter(JWTUtil jwtUtil, ChatServiceImpl chatService) {
+    public ChatWebSocketAuthFilter(JWTUtil jwtUtil, ChatServiceImpl chatService, ChatDrainService chatDrainService) {
         this.jwtUtil = jwtUtil;
         this.chatService = chatService;
+        this.chatDrainService = chatDrainService;
     }
 
     @Override
@@ -37,6 +43,11 @@ public class ChatWebSocketAuthFilter implements WebFilter {
         }
         log.debug("WebSocket auth filter hit: {}", path);
 
+        // drain 중인 노드는 새 연결을 받지 않는다 (클라이언트는 다른 노드로 다시 연결)
+        if (chatDrainService.isDraining()) {
+            return serviceUnavailable(exchange, "draining");
+        }
+
         // WebSocket 브라우저는 커스텀 헤더를 보낼 수 없으므로 쿼리파라미터(access, roomId)만 확인한다.
         String accessToken = exchange.getRequest().getQueryParams().getFirst("access");
         String roomIdParam = exchange.getRequest().getQueryParams().getFirst("roomId");
@@ -66,6 +77,8 @@ public class ChatWebSocketAuthFilter implements WebFilter {
             return unauthorized(exchange, "invalid token");
         }
 
+        exchange.getAttributes().put(USER_ID_ATTRIBUTE, userId);
+
         // 여기부터는 DB i/o 포함이므로 Mono 체인 사용
         return chatService.isRoomParticipant(userId, roomId)
                 .flatMap(isParticipant -> isParticipant
@@ -83,6 +96,16 @@ public class ChatWebSocketAuthFilter implements WebFilter {
         return response.writeWith(Mono.just(buffer));
     }
 
+    private Mono<Void> serviceUnavailable(ServerWebExchange exchange, String message) {
+        log.debug("WebSocket handshake rejected: {}", message);
+        var response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        var buffer = response.bufferFactory().wrap(message.getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(buffer));
+    }
+
     private Mono<Void> forbidden(ServerWebExchange exchange, String message) {
         log.warn("WebSocket auth forbidden: {}", message);
         var response = exchange.getResponse();
@@ -0,0 +1,78 @@
+package com.ktb.community.chat.config;
+
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.stereotype.Component;
+import reactor.netty.NettyPipeline;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * /v1/chat/connect 의 permessage-deflate 협상.
+ * Reactor Netty 의 compress 옵션은 프레임 크기와 상관없이 모두 압축하므로, 작은 프레임은 건너뛰도록
+ * 필터를 넣은 확장 핸들러를 연결마다 HTTP 코덱 뒤에 직접 붙인다 (클라이언트가 요청한 경우에만 적용된다).
+ */
+@Component
+public class ChatWebSocketCompression implements NettyServerCustomizer {
+
+    private static final String HANDLER_NAME = "chat.wsCompression";
+
+    private final boolean enabled;
+    private final PerMessageDeflateServerExtensionHandshaker handshaker;
+
+    public ChatWebSocketCompression(@Value("${chat.websocket.compression.enabled:true}") boolean enabled,
+                                    @Value("${chat.websocket.compression.level:6}") int level,
+                                    @Value("${chat.websocket.compression.min-bytes:256}") int minBytes,
+                                    @Value("${chat.websocket.compression.allow-server-no-context-takeover:false}") boolean allowServerNoContext,
+                                    @Value("${chat.websocket.compression.client-no-context-takeover:false}") boolean preferredClientNoContext,
+                                    @Value("${chat.websocket.compression.max-inflate-bytes:65536}") int maxInflateBytes) {
+        this.enabled = enabled;
+        // 윈도 크기는 협상하지 않고 최대값(15)을 쓴다.
+        // 프레임 크기 제한은 압축된 바이트에만 걸리므로, 풀었을 때 maxInflateBytes 를 넘는 프레임은 거절하고 연결을 닫는다
+        this.handshaker = new PerMessageDeflateServerExtensionHandshaker(
+                level, false, PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE,
+                allowServerNoContext, preferredClientNoContext, skipBelow(minBytes), maxInflateBytes);
+    }
+
+    @Override
+    public HttpServer apply(HttpServer httpServer) {
+        if (!enabled) {
+            return httpServer;
+        }
+        return httpServer.doOnChannelInit((observer, channel, remoteAddress) -> {
+            // HTTP/1.1 연결에만 (업그레이드 요청이 아니면 그대로 통과한다)
+            if (channel.pipeline().get(NettyPipeline.HttpCodec) != null) {
+                channel.pipeline().addAfter(NettyPipeline.HttpCodec, HANDLER_NAME,
+                        new WebSocketServerExtensionHandler(handshaker));
+            }
+        });
+    }
+
+    // 송신: minBytes 미만의 단일 프레임은 압축하지 않는다 (분할 프레임은 중간에 건너뛸 수 없으므로 항상 압축)
+    // 수신: 클라이언트가 압축한 프레임은 모두 풀어야 하므로 건너뛰지 않는다
+    static WebSocketExtensionFilterProvider skipBelow(int minBytes) {
+        WebSocketExtensionFilter encoderFilter = frame -> isSmallSingleFrame(frame, minBytes);
+        return new WebSocketExtensionFilterProvider() {
+            @Override
+            public WebSocketExtensionFilter encoderFilter() {
+                return encoderFilter;
+            }
+
+            @Override
+            public WebSocketExtensionFilter decoderFilter() {
+                return WebSocketExtensionFilter.NEVER_SKIP;
+            }
+        };
+    }
+
+    private static boolean isSmallSingleFrame(WebSocketFrame frame, int minBytes) {
+        return frame.isFinalFragment()
+                && !(frame instanceof ContinuationWebSocketFrame)
+                && frame.content().readableBytes() < minBytes;
+    }
+}
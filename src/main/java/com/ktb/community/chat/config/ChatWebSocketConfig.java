@@ -56,6 +56,8 @@ public class ChatWebSocketConfig {
     public WebSocketService webSocketService() {
         ReactorNettyRequestUpgradeStrategy strategy = new ReactorNettyRequestUpgradeStrategy();
         HandshakeWebSocketService service = new HandshakeWebSocketService(strategy);
+        // 인증 필터가 넣은 userId 를 세션 속성으로 넘긴다
+        service.setSessionAttributePredicate(ChatWebSocketAuthFilter.USER_ID_ATTRIBUTE::equals);
         return service;
     }
 
@@ -0,0 +1,25 @@
+package com.ktb.community.chat.controller;
+
+import com.ktb.community.chat.service.ChatDrainService;
+import com.ktb.community.dto.ApiResponseDto;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/v1/admin/chat")
+public class ChatAdminController {
+    private final ChatDrainService chatDrainService;
+
+    public ChatAdminController(ChatDrainService chatDrainService) {
+        this.chatDrainService = chatDrainService;
+    }
+
+    //    노드 drain : 새 연결 거절, 세션을 나눠 재연결 요청 (배포 전 호출, 완료를 기다리지 않고 바로 응답)
+    @PostMapping("/drain")
+    public Mono<ApiResponseDto<Object>> drain(){
+        chatDrainService.drain();
+        return Mono.just(ApiResponseDto.success());
+    }
+}
@@ -47,20 +47,31 @@ public class ChatController {
                 .thenReturn(ApiResponseDto.success());
     }
 
-    //    이전 메시지 조회
+    //    이전 메시지 조회 : before(메시지 ID) 이전 limit 건, 응답의 nextCursor 로 다음 페이지 조회
     @GetMapping("/history/{roomId}")
     public Mono<ApiResponseDto<Object>> getChatHistory(@PathVariable Long roomId,
+                                                       @RequestParam(name = "before", required = false) Long before,
+                                                       @RequestParam(name = "limit", defaultValue = "50") int limit,
                                                        @AuthenticationPrincipal(expression = "userId") Long userId){
-        return chatService.getChatHistory(roomId, userId)
+        return chatService.getChatHistory(roomId, userId, before, limit)
                 .map(ApiResponseDto::success);
     }
 
-    //    채팅메시지 읽음처리
+    //    채팅방 접속 현황 : 최근 하트비트가 있는 유저 목록 (변화는 WebSocket presence 프레임으로 전달)
+    @GetMapping("/room/{roomId}/presence")
+    public Mono<ApiResponseDto<Object>> getRoomPresence(@PathVariable Long roomId,
+                                                        @AuthenticationPrincipal(expression = "userId") Long userId){
+        return chatService.getRoomPresence(roomId, userId)
+                .map(ApiResponseDto::success);
+    }
+
+    //    채팅메시지 읽음처리 : messageId(생략 시 최신 메시지)까지 읽음, 내 다른 세션에 read 이벤트 전송
     @PostMapping("/room/{roomId}/read")
     public Mono<ApiResponseDto<Object>> messageRead(@PathVariable Long roomId,
+                                                    @RequestParam(name = "messageId", required = false) Long messageId,
                                                     @AuthenticationPrincipal(expression = "userId") Long userId){
-        return chatService.messageRead(roomId, userId)
-                .thenReturn(ApiResponseDto.success());
+        return chatService.messageRead(roomId, userId, messageId)
+                .map(ApiResponseDto::success);
     }
 
     //    내채팅방목록조회 : roomId, roomName, 그룹채팅여부, 메시지읽음개수
@@ -0,0 +1,21 @@
+package com.ktb.community.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// 서버 -> 클라이언트 오류 프레임 (처리하지 않은 수신 프레임에 대한 응답)
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatErrorFrameDto {
+    @Builder.Default
+    private String type = "error";
+    private String code;
+    private String message;
+    // 오류 원인 범위 (rate limit: session | user | room)
+    private String scope;
+    private Long roomId;
+}
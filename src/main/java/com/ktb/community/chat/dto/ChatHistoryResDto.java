@@ -0,0 +1,22 @@
+package com.ktb.community.chat.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class ChatHistoryResDto {
+
+    // 오래된 메시지부터 정렬된 한 페이지
+    private final List<ChatMessageDto> messages;
+    // 다음(더 과거) 페이지 요청 시 before 로 넘길 메시지 ID, 더 없으면 null
+    private final Long nextCursor;
+    private final boolean hasNext;
+
+    public ChatHistoryResDto(List<ChatMessageDto> messages, Long nextCursor, boolean hasNext) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.ktb.community.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// 클라이언트 -> 서버 WebSocket 프레임 (type: subscribe | unsubscribe | chat | typing)
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatInboundFrameDto {
+    public static final String SUBSCRIBE = "subscribe";
+    public static final String UNSUBSCRIBE = "unsubscribe";
+    public static final String CHAT = "chat";
+    public static final String TYPING = "typing";
+
+    private String type;
+    private Long roomId;
+    private Long senderId;
+    private String message;
+    // subscribe: 클라이언트가 마지막으로 받은 메시지 ID. 있으면 그 뒤 메시지를 먼저 재전송한다
+    private Long lastSeenMessageId;
+
+    public boolean isType(String expected) {
+        return expected.equalsIgnoreCase(type);
+    }
+}
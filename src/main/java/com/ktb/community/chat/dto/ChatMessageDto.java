@@ -13,6 +13,7 @@ import java.time.Instant;
 @Builder
 public class ChatMessageDto {
     private Long roomId;
+    private Long messageId;
     private String message;
     private String nickName;
     private Long senderId;
@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -12,8 +14,10 @@ import lombok.NoArgsConstructor;
 public class ChatMessagePubSubDto {
 
     private Long roomId;
+    private Long messageId;
     private String message;
     private String nickName;
     private Long senderId;
+    private Instant createdAt;
 
 }
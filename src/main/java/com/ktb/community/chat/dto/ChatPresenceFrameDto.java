@@ -0,0 +1,21 @@
+package com.ktb.community.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// 서버 -> 클라이언트 접속 상태 변화 (flush 주기 동안 바뀐 유저만 담는다)
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatPresenceFrameDto {
+    @Builder.Default
+    private String type = "presence";
+    private Long roomId;
+    private List<Long> joined;
+    private List<Long> left;
+}
@@ -0,0 +1,14 @@
+package com.ktb.community.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class ChatPresenceResDto {
+    private Long roomId;
+    // 최근 ttl 안에 하트비트가 있었던 유저
+    private List<Long> onlineUserIds;
+}
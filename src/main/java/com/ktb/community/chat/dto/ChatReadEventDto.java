@@ -0,0 +1,20 @@
+package com.ktb.community.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// 같은 유저의 다른 세션(다른 탭/기기)에 읽음 상태를 맞추기 위한 이벤트
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatReadEventDto {
+    @Builder.Default
+    private String type = "read";
+    private Long userId;
+    private Long roomId;
+    private Long lastReadMessageId;
+    private Long unReadCount;
+}
@@ -0,0 +1,14 @@
+package com.ktb.community.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ChatReadResDto {
+    private Long roomId;
+    // 이 ID 이하의 메시지까지 읽음 처리됨
+    private Long lastReadMessageId;
+    // 갱신된 행 수 (이미 읽은 상태였다면 0)
+    private int updated;
+}
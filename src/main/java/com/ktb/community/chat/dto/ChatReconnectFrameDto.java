@@ -0,0 +1,17 @@
+package com.ktb.community.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// 서버 -> 클라이언트 재연결 요청 (노드 drain). 받으면 lastSeenMessageId 와 함께 다시 연결한다
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatReconnectFrameDto {
+    @Builder.Default
+    private String type = "reconnect";
+    private String reason;
+}
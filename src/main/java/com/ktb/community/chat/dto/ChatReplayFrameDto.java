@@ -0,0 +1,24 @@
+package com.ktb.community.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// 서버 -> 클라이언트 재연결 재전송 프레임
+// replay: lastSeenMessageId 이후 메시지(오래된 순), 이 프레임 뒤로 실시간 메시지가 이어진다
+// reload: 놓친 메시지가 너무 많아 재전송하지 않는다. 이력 API 로 다시 불러와야 한다
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatReplayFrameDto {
+    public static final String REPLAY = "replay";
+    public static final String RELOAD = "reload";
+
+    private String type;
+    private Long roomId;
+    private List<ChatMessageDto> messages;
+}
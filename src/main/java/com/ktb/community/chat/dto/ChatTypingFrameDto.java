@@ -0,0 +1,20 @@
+package com.ktb.community.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// 서버 -> 클라이언트 입력 중 표시 (coalesce 창 동안 입력한 유저를 방별로 묶는다, 저장하지 않음)
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatTypingFrameDto {
+    @Builder.Default
+    private String type = "typing";
+    private Long roomId;
+    private List<Long> userIds;
+}
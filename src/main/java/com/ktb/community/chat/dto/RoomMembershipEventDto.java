@@ -0,0 +1,18 @@
+package com.ktb.community.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// 노드 간 채팅방 참여자 인덱스 동기화 이벤트
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoomMembershipEventDto {
+    public static final String JOIN = "join";
+    public static final String LEAVE = "leave";
+
+    private String type;
+    private Long roomId;
+    private Long userId;
+}
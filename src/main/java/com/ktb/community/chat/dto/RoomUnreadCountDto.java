@@ -0,0 +1,11 @@
+package com.ktb.community.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class RoomUnreadCountDto {
+    private Long roomId;
+    private Long unReadCount;
+}
@@ -10,9 +10,6 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
-import java.util.ArrayList;
-import java.util.List;
-
 @Entity
 @AllArgsConstructor
 @NoArgsConstructor
@@ -21,9 +18,9 @@ import java.util.List;
 @Table(name = "chat_messages")
 public class ChatMessage extends Timestamped {
 
+    // DB auto_increment 대신 SnowflakeIdGenerator 가 발급한 시간순 ID를 사용한다 (insert 배치/커서 페이지네이션용)
     @Id
     @Column(name = "chat_message_id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @NotNull
@@ -37,7 +34,4 @@ public class ChatMessage extends Timestamped {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "chat_room_id", nullable = false)
     private ChatRoom chatRoom;
-
-    @OneToMany(mappedBy = "chatMessage", cascade = CascadeType.REMOVE, orphanRemoval = true)
-    private List<ReadStatus> readStatuses = new ArrayList<>();
 }
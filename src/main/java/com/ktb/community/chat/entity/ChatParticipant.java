@@ -29,4 +29,15 @@ public class ChatParticipant extends Timestamped {
     @JoinColumn(name = "chat_room_id", nullable = false)
     private ChatRoom chatRoom;
 
+    // 읽음 워터마크: 이 ID 이하의 메시지는 모두 읽은 것으로 본다
+    @Column(name = "last_read_message_id", nullable = false)
+    @Builder.Default
+    private Long lastReadMessageId = 0L;
+
+    public void updateLastReadMessageId(Long messageId) {
+        // 워터마크는 앞으로만 이동한다
+        if (messageId != null && messageId > this.lastReadMessageId) {
+            this.lastReadMessageId = messageId;
+        }
+    }
 }
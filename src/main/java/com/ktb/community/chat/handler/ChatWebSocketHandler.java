@@ -1,18 +1,44 @@
 package com.ktb.community.chat.handler;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ktb.community.chat.config.ChatWebSocketAuthFilter;
+import com.ktb.community.chat.dto.ChatErrorFrameDto;
+import com.ktb.community.chat.dto.ChatInboundFrameDto;
 import com.ktb.community.chat.dto.ChatMessageReqDto;
+import com.ktb.community.chat.dto.ChatReplayFrameDto;
+import com.ktb.community.chat.mapper.InboundFrameReader;
 import com.ktb.community.chat.mapper.DtoMapper;
+import com.ktb.community.chat.service.ChatRateLimiter;
 import com.ktb.community.chat.service.ChatServiceImpl;
+import com.ktb.community.chat.service.FrameCoalescer;
+import com.ktb.community.chat.service.InboundConcurrencyLimiter;
+import com.ktb.community.chat.service.MessageReplayService;
+import com.ktb.community.chat.service.RecentMessageCache;
 import com.ktb.community.chat.service.RedisPubSubService;
+import com.ktb.community.chat.service.SessionReaper;
 import com.ktb.community.chat.service.SessionRegistry;
+import com.ktb.community.chat.service.TokenBucket;
+import com.ktb.community.chat.service.TypingIndicatorService;
+import com.ktb.community.exception.BusinessException;
+import com.ktb.community.exception.ErrorCode;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
  * WebFlux WebSocket 핸들러: subscribe/unsubscribe/chat 메시지를 처리한다.
@@ -20,85 +46,281 @@ import java.util.Map;
 @Component
 public class ChatWebSocketHandler implements WebSocketHandler {
 
+    private static final CloseStatus SLOW_CONSUMER = CloseStatus.POLICY_VIOLATION.withReason("slow consumer");
+    private static final CloseStatus IDLE_TIMEOUT = CloseStatus.GOING_AWAY.withReason("idle timeout");
+    private static final CloseStatus DRAINING = CloseStatus.SERVICE_RESTARTED.withReason("draining");
+    // 핸드셰이크 쿼리 파라미터: coalesce=true 면 송신 프레임을 JSON 배열로 묶어 보낸다
+    private static final String COALESCE_PARAM = "coalesce";
+    // 소켓에서 미리 읽어 두는 수신 프레임 수 (이만큼 쌓이면 더 읽지 않는다)
+    private static final int INBOUND_PREFETCH = 16;
+
     private final SessionRegistry sessionRegistry;
     private final RedisPubSubService redisPubSubService;
     private final ChatServiceImpl chatService;
     private final DtoMapper dtoMapper;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RecentMessageCache recentMessageCache;
+    private final ObjectMapper objectMapper;
+    private final FrameCoalescer frameCoalescer;
+    private final SessionReaper sessionReaper;
+    private final InboundFrameReader inboundFrameReader;
+    private final InboundConcurrencyLimiter inboundLimiter;
+    private final ChatRateLimiter rateLimiter;
+    private final MessageReplayService messageReplayService;
+    private final TypingIndicatorService typingIndicatorService;
+    private final int inboundLanes;
 
     public ChatWebSocketHandler(SessionRegistry sessionRegistry,
                                 RedisPubSubService redisPubSubService,
                                 ChatServiceImpl chatService,
-                                DtoMapper dtoMapper) {
+                                DtoMapper dtoMapper,
+                                RecentMessageCache recentMessageCache,
+                                ObjectMapper objectMapper,
+                                FrameCoalescer frameCoalescer,
+                                SessionReaper sessionReaper,
+                                InboundFrameReader inboundFrameReader,
+                                InboundConcurrencyLimiter inboundLimiter,
+                                ChatRateLimiter rateLimiter,
+                                MessageReplayService messageReplayService,
+                                TypingIndicatorService typingIndicatorService,
+                                @Value("${chat.inbound.max-in-flight-per-session:4}") int inboundLanes) {
         this.sessionRegistry = sessionRegistry;
         this.redisPubSubService = redisPubSubService;
         this.chatService = chatService;
         this.dtoMapper = dtoMapper;
+        this.recentMessageCache = recentMessageCache;
+        // createdAt(Instant) 직렬화를 위해 JavaTimeModule 이 등록된 스프링 ObjectMapper 사용
+        this.objectMapper = objectMapper;
+        this.frameCoalescer = frameCoalescer;
+        this.sessionReaper = sessionReaper;
+        this.inboundFrameReader = inboundFrameReader;
+        this.inboundLimiter = inboundLimiter;
+        this.rateLimiter = rateLimiter;
+        this.messageReplayService = messageReplayService;
+        this.typingIndicatorService = typingIndicatorService;
+        this.inboundLanes = inboundLanes;
     }
 
     @Override
     public Mono<Void> handle(WebSocketSession session) {
         // 세션 등록 및 outbound flux 준비
-        var connection = sessionRegistry.registerSession(session.getId());
+        // 인증 필터에서 확인한 userId (같은 유저의 다른 세션에 이벤트를 보낼 때 사용)
+        Long userId = (Long) session.getAttributes().get(ChatWebSocketAuthFilter.USER_ID_ATTRIBUTE);
+        var connection = sessionRegistry.registerSession(session.getId(), userId, liveSession(session));
         // 세션 등록/송신 스트림(outbound)
+        Flux<ByteBuf> frames = connection.getOutbox().asFlux();
+        if (isCoalesceRequested(session)) {
+            frames = frameCoalescer.coalesce(frames);
+        }
+        // 하트비트: 주기마다 ping 을 보내고, idle-timeout 동안 아무 프레임도 받지 못했으면 세션을 닫는다 (half-open 연결 정리)
+        Flux<WebSocketMessage> pings = Flux.interval(sessionReaper.getPingInterval())
+                .filter(tick -> {
+                    if (sessionReaper.isIdle(connection)) {
+                        sessionReaper.reap(connection, SessionReaper.Reason.IDLE);
+                        return false;
+                    }
+                    return true;
+                })
+                .map(tick -> session.pingMessage(factory -> factory.allocateBuffer(0)));
         Mono<Void> outbound = session.send(
-                connection.getSink().asFlux().map(session::textMessage)
+                Flux.merge(frames.map(buffer -> toTextMessage(session, buffer)), pings)
+                        // 보내지 못하고 버려지는 프레임(취소/종료)의 참조를 해제한다
+                        .doOnDiscard(ByteBuf.class, ReferenceCountUtil::safeRelease)
+                        .doOnDiscard(WebSocketMessage.class, message -> DataBufferUtils.release(message.getPayload()))
                         .doFinally(signalType -> sessionRegistry.removeSession(session.getId()))
         );
 
         // 수신 스트림(inbound)
+        TokenBucket sessionBucket = rateLimiter.newSessionBucket();
         Mono<Void> inbound = session.receive()
-                .map(WebSocketMessage::getPayloadAsText)
-                .flatMap(payload -> handleInbound(session.getId(), payload))
+                // pong 을 포함해 무엇이든 받으면 살아 있는 연결이다
+                .doOnNext(message -> connection.touch())
+                .filter(message -> message.getType() == WebSocketMessage.Type.TEXT)
+                // 문자열로 바꾸지 않고 payload 바이트에서 바로 읽는다 (payload 는 이 콜백 안에서만 유효)
+                .<ChatInboundFrameDto>handle((message, sink) -> {
+                    try (InputStream payload = message.getPayload().asInputStream()) {
+                        sink.next(inboundFrameReader.read(payload));
+                    } catch (IOException e) {
+                        // ignore malformed payload
+                    }
+                })
+                // 방 단위로 lane 을 나눠 같은 방의 프레임은 순서대로 하나씩, 다른 방은 lane 수만큼 동시에 처리한다.
+                // lane 과 노드 상한이 모두 차면 수신 요청을 멈춰 소켓 읽기가 멈춘다
+                .groupBy(this::inboundLane, INBOUND_PREFETCH)
+                .flatMap(lane -> lane.concatMap(frame -> inboundLimiter.withPermit(
+                        Mono.defer(() -> handleInbound(connection, sessionBucket, frame)))), inboundLanes)
                 .doFinally(signalType -> sessionRegistry.removeSession(session.getId()))
                 .then();
 
+        // 송신 대기열이 넘쳐(DISCONNECT 정책) 느린 클라이언트로 판단되면 세션을 닫는다
+        Mono<Void> slowConsumer = connection.getOutbox().onOverflowDisconnect()
+                .then(Mono.fromRunnable(() -> sessionReaper.reap(connection, SessionReaper.Reason.SLOW_CONSUMER)));
 
         // WebSocket 연결 종료 시점을 정의하는 코드
-        return Mono.firstWithSignal(outbound, inbound);
+        return Mono.firstWithSignal(outbound, inbound, slowConsumer);
     }
 
-    private Mono<Void> handleInbound(String sessionId, String payload) {
-        try {
-            Map<?, ?> map = objectMapper.readValue(payload, Map.class);
-            String type = (String) map.get("type");
-            Long roomId = asLong(map.get("roomId"));
-
-            if ("subscribe".equalsIgnoreCase(type) && roomId != null) {
-                sessionRegistry.subscribe(sessionId, roomId);
-            } else if ("unsubscribe".equalsIgnoreCase(type) && roomId != null) {
-                sessionRegistry.unsubscribe(sessionId, roomId);
-            } else if ("chat".equalsIgnoreCase(type)) {
-                ChatMessageReqDto req = ChatMessageReqDto.builder()
-                        .roomId(roomId)
-                        .senderId(asLong(map.get("senderId")))
-                        .message((String) map.get("message"))
-                        .build();
-
-                if (req.getRoomId() == null || req.getSenderId() == null || req.getMessage() == null) {
-                    return Mono.empty();
-                }
-
-                // 메시지 저장 -> pubsub DTO 변환 -> JSON 직렬화 -> Redis publish
-                return chatService.saveMessage(req.getRoomId(), req)
-                        .then(dtoMapper.toPubSubDto(req))
-                        .flatMap(dto -> Mono.fromCallable(() -> objectMapper.writeValueAsString(dto)))
-                        .flatMap(message -> redisPubSubService.publish("chat", message).then());
+    private int inboundLane(ChatInboundFrameDto frame) {
+        return frame.getRoomId() == null ? 0 : Math.floorMod(Long.hashCode(frame.getRoomId()), inboundLanes);
+    }
+
+    private Mono<Void> handleInbound(SessionRegistry.SessionConnection connection, TokenBucket sessionBucket,
+                                     ChatInboundFrameDto frame) {
+        String sessionId = connection.getSessionId();
+        Long userId = connection.getUserId();
+        Long roomId = frame.getRoomId();
+        if (frame.isType(ChatInboundFrameDto.SUBSCRIBE) && roomId != null) {
+            // 참여자인 방만 구독할 수 있다 (노드별 참여자 인덱스 조회)
+            Long lastSeenMessageId = frame.getLastSeenMessageId();
+            return chatService.isRoomParticipant(userId, roomId)
+                    // 없는 방/유저는 참여자가 아닌 것과 같이 무시한다
+                    .onErrorReturn(BusinessException.class, false)
+                    .filter(Boolean::booleanValue)
+                    .flatMap(isParticipant -> lastSeenMessageId == null
+                            // Redis 가 방 채널 SUBSCRIBE 를 확인할 때까지 이 방의 다음 프레임(전송 등)을 미룬다
+                            ? Mono.fromRunnable(() -> sessionRegistry.subscribe(sessionId, roomId))
+                                    .then(Mono.defer(() -> redisPubSubService.awaitRoomSubscribed(roomId)))
+                            : resume(connection, roomId, lastSeenMessageId))
+                    .then();
+        } else if (frame.isType(ChatInboundFrameDto.UNSUBSCRIBE) && roomId != null) {
+            sessionRegistry.unsubscribe(sessionId, roomId);
+        } else if (frame.isType(ChatInboundFrameDto.TYPING) && roomId != null) {
+            // 이 세션이 구독 중인 방만 (참여자 확인은 구독할 때 했다). 저장하지 않는다
+            if (connection.getRoomIds().contains(roomId)) {
+                typingIndicatorService.typing(roomId, userId);
             }
-        } catch (Exception e) {
-            // ignore malformed payload
+        } else if (frame.isType(ChatInboundFrameDto.CHAT)) {
+            // 구독 중이 아닌 방의 메시지는 버린다 (남의 방 전송 한도를 소진하지 못하게 한도 확인보다 먼저)
+            if (roomId == null || !connection.getRoomIds().contains(roomId)) {
+                return Mono.empty();
+            }
+            // 보낸 사람은 프레임 값이 아니라 인증된 연결의 유저다 (전송 한도도 이 유저에게 매긴다)
+            ChatMessageReqDto req = ChatMessageReqDto.builder()
+                    .roomId(roomId)
+                    .senderId(userId)
+                    .message(frame.getMessage())
+                    .build();
+
+            if (req.getRoomId() == null || req.getSenderId() == null || req.getMessage() == null) {
+                return Mono.empty();
+            }
+
+            // 전송 한도 확인 -> 메시지 저장 -> pubsub DTO 변환 -> 최근 메시지 캐시 추가 -> JSON 직렬화 -> Redis publish
+            // 한도를 넘은 메시지는 저장하지 않고 보낸 세션에만 오류 프레임을 보낸다
+            return rateLimiter.acquire(sessionBucket, userId, req.getRoomId())
+                    .doOnNext(scope -> sendRateLimited(connection, scope, req.getRoomId()))
+                    .hasElement()
+                    .filter(limited -> !limited)
+                    .flatMap(allowed -> chatService.saveMessage(req.getRoomId(), req)
+                            // 저장 대기열이 가득 차 거절된 메시지는 세션을 끊지 않고 보낸 세션에만 알린다
+                            .onErrorResume(this::isBacklogged, e -> {
+                                sendError(connection, ErrorCode.PERSISTENCE_BACKLOGGED, null, req.getRoomId());
+                                return Mono.empty();
+                            }))
+                    .flatMap(dtoMapper::toPubSubDto)
+                    .flatMap(dto -> recentMessageCache.append(dtoMapper.toChatMessageDto(dto)).thenReturn(dto))
+                    .flatMap(dto -> Mono.fromCallable(() -> objectMapper.writeValueAsString(dto)))
+                    .flatMap(message -> redisPubSubService.publishToRoom(req.getRoomId(), message).then());
         }
         return Mono.empty();
     }
 
-    private Long asLong(Object value) {
-        if (value instanceof Number) {
-            return ((Number) value).longValue();
+    // 재연결: 구독을 먼저 해 두고(Redis 가 확인한 뒤의 메시지는 놓치지 않는다) 놓친 구간을 보낼 때까지 이 방의 실시간 프레임을 잡아 둔다.
+    // 재전송 프레임이 먼저 나가고 잡아 둔 실시간 프레임이 뒤따른다. 둘 다에 있는 메시지는 클라이언트가 messageId 로 거른다.
+    // 구독이 확인되지 않으면 구간을 정할 수 없으므로 다시 불러오게 한다
+    private Mono<Void> resume(SessionRegistry.SessionConnection connection, Long roomId, long lastSeenMessageId) {
+        SessionRegistry.LiveHold hold = connection.holdLive(roomId);
+        sessionRegistry.subscribe(connection.getSessionId(), roomId);
+        return redisPubSubService.awaitRoomSubscribed(roomId)
+                .flatMap(subscribed -> subscribed
+                        ? messageReplayService.findGap(roomId, lastSeenMessageId)
+                        : Mono.just(MessageReplayService.Gap.RELOAD))
+                .flatMap(gap -> Mono.fromCallable(() -> objectMapper.writeValueAsString(toReplayFrame(roomId, gap))))
+                .doOnNext(replay -> {
+                    if (!hold.release(replay)) {
+                        // 잡아 두는 동안 실시간 프레임을 버렸다
+                        sendReload(connection, roomId);
+                    }
+                })
+                // 취소/오류로 끝나도 잡아 둔 프레임은 내보낸다 (이미 놓았으면 무시된다)
+                .doFinally(signalType -> hold.release(null))
+                .then();
+    }
+
+    private static ChatReplayFrameDto toReplayFrame(Long roomId, MessageReplayService.Gap gap) {
+        if (gap.reloadRequired()) {
+            return ChatReplayFrameDto.builder().type(ChatReplayFrameDto.RELOAD).roomId(roomId).build();
+        }
+        return ChatReplayFrameDto.builder()
+                .type(ChatReplayFrameDto.REPLAY)
+                .roomId(roomId)
+                .messages(gap.messages())
+                .build();
+    }
+
+    private void sendReload(SessionRegistry.SessionConnection connection, Long roomId) {
+        try {
+            connection.send(objectMapper.writeValueAsString(
+                    ChatReplayFrameDto.builder().type(ChatReplayFrameDto.RELOAD).roomId(roomId).build()));
+        } catch (JsonProcessingException e) {
+            // 알림을 만들지 못하면 보내지 않는다
+        }
+    }
+
+    private boolean isBacklogged(Throwable e) {
+        return e instanceof BusinessException be && be.getErrorCode() == ErrorCode.PERSISTENCE_BACKLOGGED;
+    }
+
+    private void sendRateLimited(SessionRegistry.SessionConnection connection, ChatRateLimiter.Scope scope, Long roomId) {
+        sendError(connection, ErrorCode.RATE_LIMITED, scope.getTag(), roomId);
+    }
+
+    private void sendError(SessionRegistry.SessionConnection connection, ErrorCode errorCode, String scope, Long roomId) {
+        ChatErrorFrameDto error = ChatErrorFrameDto.builder()
+                .code(errorCode.getCode())
+                .message(errorCode.getMessage())
+                .scope(scope)
+                .roomId(roomId)
+                .build();
+        try {
+            connection.send(objectMapper.writeValueAsString(error));
+        } catch (JsonProcessingException e) {
+            // 오류 프레임을 만들지 못하면 알림 없이 버린다
+        }
+    }
+
+    // 공유 버퍼를 복사 없이 감싸 텍스트 프레임으로 보낸다. 전송이 끝나면 Netty 가 참조를 해제한다
+    private WebSocketMessage toTextMessage(WebSocketSession session, ByteBuf buffer) {
+        if (session.bufferFactory() instanceof NettyDataBufferFactory nettyBufferFactory) {
+            return new WebSocketMessage(WebSocketMessage.Type.TEXT, nettyBufferFactory.wrap(buffer));
         }
         try {
-            return value != null ? Long.parseLong(value.toString()) : null;
-        } catch (Exception e) {
-            return null;
+            return session.textMessage(buffer.toString(StandardCharsets.UTF_8));
+        } finally {
+            buffer.release();
         }
     }
+
+    private SessionRegistry.LiveSession liveSession(WebSocketSession session) {
+        return new SessionRegistry.LiveSession() {
+            @Override
+            public boolean isOpen() {
+                return session.isOpen();
+            }
+
+            @Override
+            public Mono<Void> close(SessionReaper.Reason reason) {
+                return session.close(switch (reason) {
+                    case SLOW_CONSUMER -> SLOW_CONSUMER;
+                    case DRAIN -> DRAINING;
+                    default -> IDLE_TIMEOUT;
+                });
+            }
+        };
+    }
+
+    private boolean isCoalesceRequested(WebSocketSession session) {
+        String value = UriComponentsBuilder.fromUri(session.getHandshakeInfo().getUri()).build()
+                .getQueryParams().getFirst(COALESCE_PARAM);
+        return "true".equalsIgnoreCase(value) || "1".equals(value);
+    }
 }
@@ -2,35 +2,39 @@ package com.ktb.community.chat.mapper;
 
 import com.ktb.community.chat.dto.ChatMessageDto;
 import com.ktb.community.chat.dto.ChatMessagePubSubDto;
-import com.ktb.community.chat.dto.ChatMessageReqDto;
-import com.ktb.community.exception.BusinessException;
-import com.ktb.community.exception.ErrorCode;
-import com.ktb.community.repository.UserRepository;
+import com.ktb.community.chat.service.UserProfileCache;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
-import static reactor.core.scheduler.Schedulers.boundedElastic;
-
 @Component
 public class DtoMapper {
-    private final UserRepository userRepository;
+    private final UserProfileCache userProfileCache;
 
-    public DtoMapper(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public DtoMapper(UserProfileCache userProfileCache) {
+        this.userProfileCache = userProfileCache;
     }
 
-    public Mono<ChatMessagePubSubDto> toPubSubDto(ChatMessageReqDto chatMessageReqDto) {
-
-        return Mono.fromCallable(() -> userRepository.findById(chatMessageReqDto.getSenderId())
-                        .orElseThrow(() -> new BusinessException(ErrorCode.MEMBER_NOT_FOUND)))
-                .subscribeOn(boundedElastic())
-                .map(user -> ChatMessagePubSubDto.builder()
-                        .message(chatMessageReqDto.getMessage())
-                        .roomId(chatMessageReqDto.getRoomId())
-                        .senderId(chatMessageReqDto.getSenderId())
-                        .nickName(user.getNickname())
+    public Mono<ChatMessagePubSubDto> toPubSubDto(ChatMessageDto savedMessage) {
+        // 발신자 닉네임은 유저 프로필 캐시에서 읽는다 (캐시에 없을 때만 DB 조회)
+        return userProfileCache.get(savedMessage.getSenderId())
+                .map(profile -> ChatMessagePubSubDto.builder()
+                        .message(savedMessage.getMessage())
+                        .roomId(savedMessage.getRoomId())
+                        .messageId(savedMessage.getMessageId())
+                        .senderId(savedMessage.getSenderId())
+                        .nickName(profile.nickname())
+                        .createdAt(savedMessage.getCreatedAt())
                         .build());
+    }
 
-
+    public ChatMessageDto toChatMessageDto(ChatMessagePubSubDto pubSubDto) {
+        return ChatMessageDto.builder()
+                .roomId(pubSubDto.getRoomId())
+                .messageId(pubSubDto.getMessageId())
+                .message(pubSubDto.getMessage())
+                .nickName(pubSubDto.getNickName())
+                .senderId(pubSubDto.getSenderId())
+                .createdAt(pubSubDto.getCreatedAt())
+                .build();
     }
 }
@@ -0,0 +1,110 @@
+package com.ktb.community.chat.mapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ktb.community.chat.dto.ChatInboundFrameDto;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * WebSocket 수신 프레임과 Pub/Sub 페이로드 파서.
+ * 둘 다 Jackson 스트리밍 파서(공유 JsonFactory)로 읽는다. 수신 프레임은 바이트에서 바로 ChatInboundFrameDto 로 읽고
+ * (문자열/Map/트리 변환 없음), Pub/Sub 페이로드는 라우팅 필드만 읽은 뒤 본문은 파싱하지 않고 그대로 전달한다.
+ */
+@Component
+public class InboundFrameReader {
+
+    private final JsonFactory jsonFactory;
+
+    public InboundFrameReader(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public ChatInboundFrameDto read(InputStream payload) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            return read(parser);
+        }
+    }
+
+    public ChatInboundFrameDto read(String payload) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            return read(parser);
+        }
+    }
+
+    // 알고 있는 필드만 읽고 나머지(중첩 값 포함)는 건너뛴다. 숫자 필드는 "123" 같은 문자열도 받는다
+    private static ChatInboundFrameDto read(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "inbound frame must be a JSON object");
+        }
+        ChatInboundFrameDto.ChatInboundFrameDtoBuilder frame = ChatInboundFrameDto.builder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (name) {
+                case "type" -> frame.type(textValue(parser, value));
+                case "roomId" -> frame.roomId(longValue(parser, value));
+                case "senderId" -> frame.senderId(longValue(parser, value));
+                case "message" -> frame.message(textValue(parser, value));
+                case "lastSeenMessageId" -> frame.lastSeenMessageId(longValue(parser, value));
+                default -> parser.skipChildren();
+            }
+        }
+        return frame.build();
+    }
+
+    private static String textValue(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static Long longValue(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            return parseLong(parser.getText());
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * 최상위 객체의 숫자 필드 하나를 읽는다. 찾으면 나머지는 읽지 않는다. 없거나 숫자가 아니면 null.
+     */
+    public Long readLongField(String payload, String fieldName) {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (fieldName.equals(name)) {
+                    return longValue(parser, value);
+                }
+                // 중첩 객체/배열은 통째로 건너뛴다
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
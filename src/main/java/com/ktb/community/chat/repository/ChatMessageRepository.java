@@ -1,13 +1,47 @@
 package com.ktb.community.chat.repository;
 
+import com.ktb.community.chat.dto.ChatMessageDto;
+import com.ktb.community.chat.dto.RoomUnreadCountDto;
 import com.ktb.community.chat.entity.ChatMessage;
 import com.ktb.community.chat.entity.ChatRoom;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
-    List<ChatMessage> findByChatRoomOrderByCreatedAtAsc(ChatRoom chatRoom);
+    // 키셋 페이지네이션: before 보다 작은 ID 중 최신순, idx_chat_messages_room_message 인덱스를 탄다
+    // users 를 한 번에 조인해 DTO로 바로 받으므로 메시지마다 발신자를 지연 로딩하지 않는다 (N+1 방지)
+    @Query("SELECT new com.ktb.community.chat.dto.ChatMessageDto(m.chatRoom.id, m.id, m.contents, u.nickname, u.id, m.createdAt) " +
+            "FROM ChatMessage m JOIN m.user u " +
+            "WHERE m.chatRoom.id = :roomId AND m.id < :before ORDER BY m.id DESC")
+    List<ChatMessageDto> findHistoryPage(@Param("roomId") Long roomId, @Param("before") Long before, Pageable pageable);
 
-    List<ChatMessage> findTop10ByChatRoomOrderByCreatedAtDesc(ChatRoom chatRoom);
+    // 키셋: after 보다 큰 ID 를 오래된 순으로 (재연결한 클라이언트가 놓친 메시지), 같은 인덱스를 탄다
+    @Query("SELECT new com.ktb.community.chat.dto.ChatMessageDto(m.chatRoom.id, m.id, m.contents, u.nickname, u.id, m.createdAt) " +
+            "FROM ChatMessage m JOIN m.user u " +
+            "WHERE m.chatRoom.id = :roomId AND m.id > :after ORDER BY m.id ASC")
+    List<ChatMessageDto> findMessagesAfter(@Param("roomId") Long roomId, @Param("after") Long after, Pageable pageable);
+
+    // 채팅방의 가장 최근 메시지 ID (읽음 워터마크 기준점)
+    @Query("SELECT MAX(m.id) FROM ChatMessage m WHERE m.chatRoom = :chatRoom")
+    Optional<Long> findLatestMessageId(@Param("chatRoom") ChatRoom chatRoom);
+
+    @Query("SELECT MAX(m.id) FROM ChatMessage m WHERE m.chatRoom.id = :roomId")
+    Optional<Long> findLatestMessageIdByRoomId(@Param("roomId") Long roomId);
+
+    // 워터마크 이후 다른 사람이 보낸 메시지 수 = 안 읽은 메시지 수
+    @Query("SELECT COUNT(m) FROM ChatMessage m WHERE m.chatRoom.id = :roomId AND m.id > :lastReadMessageId AND m.user.id <> :userId")
+    long countUnread(@Param("roomId") Long roomId, @Param("userId") Long userId, @Param("lastReadMessageId") Long lastReadMessageId);
+
+    // 위와 같은 기준으로 유저의 모든 채팅방을 한 번에 집계한다
+    // (안 읽은 메시지가 없는 방은 결과에 포함되지 않는다)
+    @Query("SELECT new com.ktb.community.chat.dto.RoomUnreadCountDto(p.chatRoom.id, COUNT(m)) " +
+            "FROM ChatParticipant p JOIN ChatMessage m ON m.chatRoom = p.chatRoom " +
+            "WHERE p.user.id = :userId AND m.id > p.lastReadMessageId AND m.user.id <> :userId " +
+            "GROUP BY p.chatRoom.id")
+    List<RoomUnreadCountDto> countUnreadByRoom(@Param("userId") Long userId);
 }
@@ -3,8 +3,9 @@ package com.ktb.community.chat.repository;
 import com.ktb.community.chat.entity.ChatParticipant;
 import com.ktb.community.chat.entity.ChatRoom;
 import com.ktb.community.entity.User;
-import io.lettuce.core.dynamic.annotation.Param;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
@@ -15,6 +16,20 @@ public interface ChatParticipantRepository extends JpaRepository<ChatParticipant
     List<ChatParticipant> findByChatRoom(ChatRoom chatRoom);
     Optional<ChatParticipant> findByChatRoomAndUser(ChatRoom chatRoom, User user);
     List<ChatParticipant> findAllByUser(User user);
+    boolean existsByChatRoomIdAndUserId(Long chatRoomId, Long userId);
+
+    // 읽음 처리: 워터마크를 앞으로만 옮기는 단일 UPDATE, 갱신된 행 수를 반환한다
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ChatParticipant cp SET cp.lastReadMessageId = :messageId " +
+            "WHERE cp.chatRoom.id = :roomId AND cp.user.id = :userId AND cp.lastReadMessageId < :messageId")
+    int advanceLastReadMessageId(@Param("roomId") Long roomId, @Param("userId") Long userId, @Param("messageId") Long messageId);
+
+    // 내 채팅방 목록: 참여자와 채팅방을 한 번에 조인해 방마다 지연 로딩하지 않는다
+    @Query("SELECT cp.chatRoom FROM ChatParticipant cp WHERE cp.user.id = :userId")
+    List<ChatRoom> findChatRoomsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT cp.user.id FROM ChatParticipant cp WHERE cp.chatRoom.id = :roomId")
+    List<Long> findUserIdsByChatRoomId(@Param("roomId") Long roomId);
 
 
     @Query("SELECT cp1.chatRoom FROM ChatParticipant cp1 JOIN ChatParticipant cp2 ON cp1.chatRoom.id = cp2.chatRoom.id WHERE cp1.user.id = :myId AND cp2.user.id = :otherMemberId AND cp1.chatRoom.isGroupChat = false")
@@ -0,0 +1,165 @@
+package com.ktb.community.chat.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ktb.community.chat.dto.ChatReconnectFrameDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 노드 drain (종료 시 또는 관리자 요청).
+ * 1) 새 핸드셰이크를 받지 않는다 (ChatWebSocketAuthFilter 가 503 으로 응답).
+ * 2) 열린 세션을 섞어 spread 동안 고르게 나눠 reconnect 프레임을 보내고, grace 뒤에 닫는다.
+ *    클라이언트가 한꺼번에 다른 노드로 몰리지 않는다. 그 사이 등록된 세션(drain 직전에 필터를 통과한 핸드셰이크)은 마지막에 한 번 더 닫는다.
+ * 3) 처리 중인 수신 프레임(saveMessage -> publish)과 저장 대기 배치가 끝나기를 기다린다.
+ * 4) 방/입력 중 Redis 채널 구독을 끊는다. 전역 채널은 컨텍스트 종료 때 끊는다.
+ * 종료 시에는 웹 서버보다 먼저 멈추는 lifecycle 단계에서 실행되므로 세션에 프레임을 보낼 수 있다.
+ */
+@Component
+public class ChatDrainService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatDrainService.class);
+    private static final Duration TICK = Duration.ofMillis(100);
+    private static final Duration IDLE_POLL = Duration.ofMillis(50);
+
+    private final SessionRegistry sessionRegistry;
+    private final SessionReaper sessionReaper;
+    private final InboundConcurrencyLimiter inboundLimiter;
+    private final ChatMessageBatchWriter batchWriter;
+    private final RedisPubSubService redisPubSubService;
+    private final ObjectMapper objectMapper;
+    private final Duration spread;
+    private final Duration grace;
+    private final Duration timeout;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean running;
+    private Mono<Void> drained;
+
+    public ChatDrainService(SessionRegistry sessionRegistry,
+                            SessionReaper sessionReaper,
+                            InboundConcurrencyLimiter inboundLimiter,
+                            ChatMessageBatchWriter batchWriter,
+                            RedisPubSubService redisPubSubService,
+                            ObjectMapper objectMapper,
+                            @Value("${chat.drain.spread-seconds:10}") long spreadSeconds,
+                            @Value("${chat.drain.grace-ms:1000}") long graceMs,
+                            @Value("${chat.drain.timeout-seconds:20}") long timeoutSeconds) {
+        this.sessionRegistry = sessionRegistry;
+        this.sessionReaper = sessionReaper;
+        this.inboundLimiter = inboundLimiter;
+        this.batchWriter = batchWriter;
+        this.redisPubSubService = redisPubSubService;
+        this.objectMapper = objectMapper;
+        this.spread = Duration.ofSeconds(spreadSeconds);
+        this.grace = Duration.ofMillis(graceMs);
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+    }
+
+    public boolean isDraining() {
+        return draining.get();
+    }
+
+    /**
+     * drain 을 시작한다. 여러 번 호출해도 한 번만 실행되며 같은 완료 신호를 돌려준다.
+     */
+    public synchronized Mono<Void> drain() {
+        if (draining.compareAndSet(false, true)) {
+            log.info("chat drain started sessions={}", sessionRegistry.getConnections().size());
+            this.drained = disconnectGradually()
+                    .then(awaitIdle())
+                    .then(Mono.fromRunnable(redisPubSubService::closeRoomListeners))
+                    .doOnSuccess(ignored -> log.info("chat drain finished"))
+                    .then()
+                    .cache();
+            drained.subscribe(null, e -> log.warn("chat drain failed", e));
+        }
+        return drained;
+    }
+
+    private Mono<Void> disconnectGradually() {
+        return disconnect(spread)
+                // 스냅샷 뒤에 등록된 세션은 spread 없이 닫는다
+                .then(Mono.defer(() -> disconnect(Duration.ZERO)));
+    }
+
+    private Mono<Void> disconnect(Duration window) {
+        List<SessionRegistry.SessionConnection> connections = new ArrayList<>(sessionRegistry.getConnections());
+        if (connections.isEmpty()) {
+            return Mono.empty();
+        }
+        // 순서를 섞어 tick 마다 같은 수씩 보낸다
+        Collections.shuffle(connections);
+        long ticks = Math.max(1, window.toMillis() / TICK.toMillis());
+        int perTick = (int) Math.max(1, (connections.size() + ticks - 1) / ticks);
+        String reconnect = reconnectFrame();
+        return Flux.fromIterable(connections)
+                .buffer(perTick)
+                .delayElements(TICK)
+                .doOnNext(batch -> batch.forEach(connection -> connection.send(reconnect)))
+                // 클라이언트가 프레임을 받고 스스로 옮겨갈 시간을 준 뒤 닫는다
+                .flatMap(batch -> Mono.delay(grace)
+                        .doOnNext(ignored -> batch.forEach(connection ->
+                                sessionReaper.reap(connection, SessionReaper.Reason.DRAIN))))
+                .then();
+    }
+
+    // saveMessage 를 포함한 수신 처리와 저장 대기 배치가 모두 끝날 때까지
+    private Mono<Void> awaitIdle() {
+        return Flux.interval(Duration.ZERO, IDLE_POLL)
+                .filter(tick -> inboundLimiter.getInFlight() == 0 && batchWriter.isIdle())
+                .next()
+                .then()
+                .timeout(timeout, Mono.fromRunnable(() -> log.warn(
+                        "chat drain timed out waiting for in-flight work inbound={} pending={}",
+                        inboundLimiter.getInFlight(), batchWriter.getQueueDepth())));
+    }
+
+    private String reconnectFrame() {
+        try {
+            return objectMapper.writeValueAsString(ChatReconnectFrameDto.builder().reason("draining").build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        drain().onErrorResume(e -> Mono.empty()).block(spread.plus(grace).plus(timeout));
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        running = false;
+        drain().doFinally(signalType -> callback.run()).subscribe(null, e -> {
+        });
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // 웹 서버(graceful shutdown 포함)보다 먼저 멈춘다
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE;
+    }
+}
@@ -0,0 +1,242 @@
+package com.ktb.community.chat.service;
+
+import com.ktb.community.chat.dto.ChatMessageDto;
+import com.ktb.community.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ktb.community.exception.ErrorCode.MEMBER_NOT_FOUND;
+import static com.ktb.community.exception.ErrorCode.PERSISTENCE_BACKLOGGED;
+import static com.ktb.community.exception.ErrorCode.ROOM_NOT_FOUND;
+import static reactor.core.scheduler.Schedulers.boundedElastic;
+
+/**
+ * 채팅 메시지 write-behind 파이프라인.
+ * 메시지를 짧은 시간 창 또는 최대 크기만큼 모아 한 트랜잭션에서 multi-row insert 로 저장하고,
+ * 배치가 커밋되면 각 발신자의 Mono를 완료시킨다.
+ * 저장 대기열은 max-queue-size 로 제한되며, 가득 차면 기다리지 않고 PERSISTENCE_BACKLOGGED 로 거절한다.
+ */
+@Component
+public class ChatMessageBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatMessageBatchWriter.class);
+    private static final String INSERT_PREFIX =
+            "INSERT INTO chat_messages (chat_message_id, contents, chat_room_id, user_id, created_at, updated_at) VALUES ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?, ?, ?)";
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SnowflakeIdGenerator idGenerator;
+
+    private final int maxQueueSize;
+    private final Sinks.Many<PendingMessage> queue;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private final DistributionSummary batchSizeSummary;
+    private final Timer batchWriteTimer;
+    private final Counter rejectedCounter;
+
+    public ChatMessageBatchWriter(NamedParameterJdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  SnowflakeIdGenerator idGenerator,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${chat.persistence.batch-window-ms:20}") long batchWindowMs,
+                                  @Value("${chat.persistence.max-batch-size:200}") int maxBatchSize,
+                                  @Value("${chat.persistence.max-in-flight-batches:4}") int maxInFlightBatches,
+                                  @Value("${chat.persistence.max-queue-size:10000}") int maxQueueSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.idGenerator = idGenerator;
+        this.maxQueueSize = maxQueueSize;
+        // 유한 버퍼. 넣기 전에 queueDepth 로 상한을 확인하므로 이 버퍼가 넘치는 일은 없다
+        this.queue = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingMessage>get(maxQueueSize).get());
+
+        Gauge.builder("chat.persistence.queue.depth", queueDepth, AtomicInteger::get)
+                .description("저장 대기 중인 채팅 메시지 수")
+                .register(meterRegistry);
+        Gauge.builder("chat.persistence.batches.in-flight", inFlightBatches, AtomicInteger::get)
+                .description("커밋 중인 배치 수")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("chat.persistence.batch.size")
+                .register(meterRegistry);
+        this.batchWriteTimer = Timer.builder("chat.persistence.batch.write")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("chat.persistence.rejected")
+                .description("저장 대기열이 가득 차 거절한 메시지 수")
+                .register(meterRegistry);
+
+        // fairBackpressure: 진행 중인 배치가 상한에 걸리면 버퍼링을 멈추고 기다린다
+        queue.asFlux()
+                .bufferTimeout(maxBatchSize, Duration.ofMillis(batchWindowMs), true)
+                .flatMap(this::writeBatch, maxInFlightBatches)
+                .doFinally(signalType -> terminated.countDown())
+                .subscribe();
+    }
+
+    /**
+     * 메시지를 저장 큐에 넣는다. 메시지 ID는 큐에 넣는 시점에 발급되며,
+     * 반환된 Mono는 해당 메시지가 포함된 배치가 커밋되면 저장된 메시지(닉네임 제외)를 내보낸다.
+     * 대기열이 가득 차 있으면 PERSISTENCE_BACKLOGGED 로 실패한다.
+     */
+    public Mono<ChatMessageDto> write(Long roomId, Long senderId, String contents) {
+        return Mono.defer(() -> {
+            // 자리를 먼저 잡고, 상한을 넘었으면 돌려준 뒤 거절한다
+            if (queueDepth.incrementAndGet() > maxQueueSize) {
+                queueDepth.decrementAndGet();
+                rejectedCounter.increment();
+                return Mono.error(new BusinessException(PERSISTENCE_BACKLOGGED));
+            }
+            PendingMessage pending;
+            try {
+                pending = new PendingMessage(idGenerator.nextId(), roomId, senderId, contents, Instant.now());
+            } catch (RuntimeException e) {
+                queueDepth.decrementAndGet();
+                return Mono.error(e);
+            }
+            // 여러 스레드에서 동시에 emit 할 수 있으므로 경합 시 잠깐 재시도한다
+            queue.emitNext(pending, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+            return pending.result().asMono();
+        });
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    // 대기 중이거나 커밋 중인 메시지가 없음
+    public boolean isIdle() {
+        return queueDepth.get() == 0 && inFlightBatches.get() == 0;
+    }
+
+    private Mono<Void> writeBatch(List<PendingMessage> batch) {
+        return Mono.fromRunnable(() -> persist(batch))
+                .subscribeOn(boundedElastic())
+                .doOnSubscribe(subscription -> {
+                    // isIdle 이 두 값 사이에서 잠깐 idle 로 보지 않도록 in-flight 를 먼저 올린다
+                    inFlightBatches.incrementAndGet();
+                    queueDepth.addAndGet(-batch.size());
+                })
+                // 종료 신호가 파이프라인 끝(terminated)까지 전파되기 전에 내려야 종료 직후 isIdle 이 정확하다
+                .doOnTerminate(inFlightBatches::decrementAndGet)
+                .doOnCancel(inFlightBatches::decrementAndGet)
+                .then()
+                // 한 배치의 실패가 파이프라인 전체를 끊지 않도록 오류는 각 발신자에게만 전달한다
+                .onErrorResume(e -> {
+                    log.warn("chat message batch failed size={}", batch.size(), e);
+                    batch.forEach(pending -> pending.result().tryEmitError(e));
+                    return Mono.empty();
+                });
+    }
+
+    private void persist(List<PendingMessage> batch) {
+        batchSizeSummary.record(batch.size());
+        List<PendingMessage> accepted = new ArrayList<>(batch.size());
+
+        batchWriteTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+            // 채팅방/발신자 존재 여부를 배치 단위로 한 번에 확인한다
+            Set<Long> roomIds = existingIds("SELECT chat_room_id FROM chat_rooms WHERE chat_room_id IN (:ids)",
+                    batch.stream().map(PendingMessage::roomId).toList());
+            Set<Long> userIds = existingIds("SELECT user_id FROM users WHERE user_id IN (:ids)",
+                    batch.stream().map(PendingMessage::senderId).toList());
+
+            for (PendingMessage pending : batch) {
+                if (!roomIds.contains(pending.roomId())) {
+                    pending.result().tryEmitError(new BusinessException(ROOM_NOT_FOUND));
+                } else if (!userIds.contains(pending.senderId())) {
+                    pending.result().tryEmitError(new BusinessException(MEMBER_NOT_FOUND));
+                } else {
+                    accepted.add(pending);
+                }
+            }
+            if (!accepted.isEmpty()) {
+                insertRows(accepted);
+            }
+        }));
+
+        // 커밋 이후에만 발신자에게 완료를 알린다
+        accepted.forEach(pending -> pending.result().tryEmitValue(pending.toDto()));
+    }
+
+    private Set<Long> existingIds(String sql, List<Long> ids) {
+        return new HashSet<>(jdbcTemplate.queryForList(sql, Map.of("ids", new HashSet<>(ids)), Long.class));
+    }
+
+    private void insertRows(List<PendingMessage> rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows.size() * (INSERT_ROW.length() + 2))
+                .append(INSERT_PREFIX);
+        List<Object> args = new ArrayList<>(rows.size() * 6);
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(INSERT_ROW);
+
+            PendingMessage row = rows.get(i);
+            // Hibernate(jdbc.time_zone=UTC)와 같은 기준으로 저장
+            LocalDateTime createdAt = LocalDateTime.ofInstant(row.createdAt(), ZoneOffset.UTC);
+            args.add(row.messageId());
+            args.add(row.contents());
+            args.add(row.roomId());
+            args.add(row.senderId());
+            args.add(createdAt);
+            args.add(createdAt);
+        }
+        jdbcTemplate.getJdbcTemplate().update(sql.toString(), args.toArray());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // 남은 메시지를 마저 저장한 뒤 종료한다
+        queue.emitComplete(Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+        if (!terminated.await(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("chat message batch writer did not drain in time, pending={}", queueDepth.get());
+        }
+    }
+
+    private record PendingMessage(long messageId, Long roomId, Long senderId, String contents, Instant createdAt,
+                                  Sinks.One<ChatMessageDto> result) {
+
+        PendingMessage(long messageId, Long roomId, Long senderId, String contents, Instant createdAt) {
+            this(messageId, roomId, senderId, contents, createdAt, Sinks.one());
+        }
+
+        ChatMessageDto toDto() {
+            return ChatMessageDto.builder()
+                    .roomId(roomId)
+                    .messageId(messageId)
+                    .message(contents)
+                    .senderId(senderId)
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+}
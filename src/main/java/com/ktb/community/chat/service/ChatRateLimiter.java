@@ -0,0 +1,187 @@
+package com.ktb.community.chat.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 채팅 메시지 전송 한도 (토큰 버킷). 세션 -> 방 -> 유저 순서로 확인하고,
+ * 뒤 범위에서 거절되면 앞에서 가져간 세션/방 토큰을 돌려준다 (보내지 않은 메시지는 어떤 한도도 쓰지 않는다).
+ * 세션/방 버킷은 노드 메모리에서 CAS 한 번으로 확인하고(방 한도는 노드별로 적용된다),
+ * 유저 버킷은 여러 노드가 나눠 쓰도록 Redis(chat:ratelimit:user:{userId})에 두되 한 번에 lease 개씩 가져와
+ * 노드에서 소진한 뒤 다시 가져온다. Redis 오류 시에는 막지 않는다(fail-open).
+ * 거절 수는 chat.ratelimit.rejected{scope} 로 남는다.
+ */
+@Component
+public class ChatRateLimiter {
+
+    public enum Scope {
+        SESSION("session"),
+        ROOM("room"),
+        USER("user");
+
+        private final String tag;
+
+        Scope(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ChatRateLimiter.class);
+
+    // 요청한 수(ARGV[3]) 이하로 남은 토큰만큼 내준다. 시각은 노드 시계가 아닌 Redis TIME 기준
+    private static final RedisScript<Long> LEASE_SCRIPT = RedisScript.of("""
+            local rate = tonumber(ARGV[1])
+            local burst = tonumber(ARGV[2])
+            local requested = tonumber(ARGV[3])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1])
+            local ts = tonumber(state[2])
+            if tokens == nil or ts == nil then
+                tokens = burst
+                ts = now
+            end
+            tokens = math.min(burst, tokens + math.max(0, now - ts) * rate / 1000)
+            local granted = math.min(requested, math.floor(tokens))
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens - granted), 'ts', now)
+            redis.call('PEXPIRE', KEYS[1], math.ceil(burst * 1000 / rate) + 1000)
+            return granted
+            """, Long.class);
+
+    // 거절 결과는 매번 만들지 않고 재사용한다
+    private static final Map<Scope, Mono<Scope>> REJECTED = new EnumMap<>(Scope.class);
+
+    static {
+        for (Scope scope : Scope.values()) {
+            REJECTED.put(scope, Mono.just(scope));
+        }
+    }
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final double sessionRate;
+    private final int sessionBurst;
+    private final Cache<Long, TokenBucket> roomBuckets;
+    private final Function<Long, TokenBucket> newRoomBucket;
+    // 유저별로 Redis 에서 미리 가져온 토큰
+    private final Cache<Long, AtomicInteger> userLeases;
+    private final Function<Long, AtomicInteger> newUserLease = userId -> new AtomicInteger();
+    private final List<String> leaseArgs;
+    private final Map<Scope, Counter> rejected = new EnumMap<>(Scope.class);
+
+    public ChatRateLimiter(@Qualifier("chatPubSub") ReactiveStringRedisTemplate redisTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${chat.rate-limit.session.rate:5}") double sessionRate,
+                           @Value("${chat.rate-limit.session.burst:10}") int sessionBurst,
+                           @Value("${chat.rate-limit.room.rate:50}") double roomRate,
+                           @Value("${chat.rate-limit.room.burst:100}") int roomBurst,
+                           @Value("${chat.rate-limit.user.rate:10}") double userRate,
+                           @Value("${chat.rate-limit.user.burst:20}") int userBurst,
+                           @Value("${chat.rate-limit.user.lease:5}") int userLease,
+                           @Value("${chat.rate-limit.idle-minutes:10}") long idleMinutes) {
+        this.redisTemplate = redisTemplate;
+        this.sessionRate = sessionRate;
+        this.sessionBurst = sessionBurst;
+        this.newRoomBucket = roomId -> new TokenBucket(roomRate, roomBurst);
+        this.roomBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+        this.userLeases = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+        this.leaseArgs = List.of(String.valueOf(userRate), String.valueOf(userBurst),
+                String.valueOf(Math.max(1, Math.min(userLease, userBurst))));
+        for (Scope scope : Scope.values()) {
+            rejected.put(scope, Counter.builder("chat.ratelimit.rejected")
+                    .description("전송 한도를 넘어 거절한 채팅 메시지 수")
+                    .tag("scope", scope.getTag())
+                    .register(meterRegistry));
+        }
+    }
+
+    // 세션이 연결될 때 한 번 만든다
+    public TokenBucket newSessionBucket() {
+        return new TokenBucket(sessionRate, sessionBurst);
+    }
+
+    /**
+     * 메시지 1건을 보낼 수 있으면 empty, 한도를 넘었으면 넘은 범위를 내보낸다.
+     * Redis 에서 유저 토큰을 다시 가져와야 할 때만 비동기로 동작한다.
+     */
+    public Mono<Scope> acquire(TokenBucket sessionBucket, Long userId, Long roomId) {
+        if (!sessionBucket.tryAcquire()) {
+            return reject(Scope.SESSION);
+        }
+        TokenBucket roomBucket = roomBuckets.get(roomId, newRoomBucket);
+        if (!roomBucket.tryAcquire()) {
+            sessionBucket.refund();
+            return reject(Scope.ROOM);
+        }
+        if (userId == null) {
+            return Mono.empty();
+        }
+        AtomicInteger lease = userLeases.get(userId, newUserLease);
+        if (takeLeased(lease)) {
+            return Mono.empty();
+        }
+        return redisTemplate.execute(LEASE_SCRIPT, List.of(key(userId)), leaseArgs)
+                .next()
+                .defaultIfEmpty(0L)
+                .flatMap(granted -> {
+                    if (granted <= 0) {
+                        sessionBucket.refund();
+                        roomBucket.refund();
+                        return reject(Scope.USER);
+                    }
+                    // 하나는 지금 쓰고 나머지는 다음 메시지용으로 남긴다
+                    lease.addAndGet((int) (granted - 1));
+                    return Mono.<Scope>empty();
+                })
+                .onErrorResume(e -> {
+                    log.warn("user rate limit lease failed userId={}", userId, e);
+                    return Mono.empty();
+                });
+    }
+
+    private static boolean takeLeased(AtomicInteger lease) {
+        while (true) {
+            int current = lease.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (lease.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    private Mono<Scope> reject(Scope scope) {
+        rejected.get(scope).increment();
+        return REJECTED.get(scope);
+    }
+
+    private static String key(Long userId) {
+        return "chat:ratelimit:user:" + userId;
+    }
+}
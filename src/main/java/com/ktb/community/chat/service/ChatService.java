@@ -8,8 +8,8 @@ import reactor.core.publisher.Mono;
 import java.util.List;
 
 public interface ChatService {
-    // 메시지 발행 시 메시지 저장
-    Mono<Void> saveMessage(Long roomId, ChatMessageReqDto chatMessageReqDto);
+    // 메시지 발행 시 메시지 저장, 저장된 메시지(ID, 생성시각 포함) 반환
+    Mono<ChatMessageDto> saveMessage(Long roomId, ChatMessageReqDto chatMessageReqDto);
 
     // 그룹 채팅방 생성
     Mono<Void> createGroupRoom(String chatRoomName, Long userId);
@@ -26,14 +26,17 @@ public interface ChatService {
     // 채팅방 참여
     Mono<Void> addParticipantToRoom(ChatRoom chatRoom, User user);
 
-    // 채팅방 이전 메시지 조회
-    Mono<List<ChatMessageDto>> getChatHistory(Long roomId, Long userId);
+    // 채팅방 이전 메시지 조회 (before 커서 기준 키셋 페이지네이션)
+    Mono<ChatHistoryResDto> getChatHistory(Long roomId, Long userId, Long before, int limit);
+
+    // 채팅방 접속 중인 유저 조회
+    Mono<ChatPresenceResDto> getRoomPresence(Long roomId, Long userId);
 
     // 유저가 해당 채팅방 참여자인지 확인
     Mono<Boolean> isRoomParticipant(Long userId, Long roomId);
 
-    // 메시지 읽음 처리
-    Mono<Void> messageRead(Long roomId, Long userId);
+    // 메시지 읽음 처리 (messageId 가 없으면 채팅방의 최신 메시지까지)
+    Mono<ChatReadResDto> messageRead(Long roomId, Long userId, Long messageId);
 
     // 내 채팅 목록 조회
     Mono<List<MyChatListResDto>> getMyChatRooms(Long userId);
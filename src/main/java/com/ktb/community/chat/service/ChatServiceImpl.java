@@ -1,14 +1,11 @@
 package com.ktb.community.chat.service;
 
 import com.ktb.community.chat.dto.*;
-import com.ktb.community.chat.entity.ChatMessage;
 import com.ktb.community.chat.entity.ChatParticipant;
 import com.ktb.community.chat.entity.ChatRoom;
-import com.ktb.community.chat.entity.ReadStatus;
 import com.ktb.community.chat.repository.ChatMessageRepository;
 import com.ktb.community.chat.repository.ChatParticipantRepository;
 import com.ktb.community.chat.repository.ChatRoomRepository;
-import com.ktb.community.chat.repository.ReadStatusRepository;
 import com.ktb.community.entity.User;
 import com.ktb.community.exception.BusinessException;
 import com.ktb.community.repository.UserRepository;
@@ -22,9 +19,10 @@ import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 import static com.ktb.community.exception.ErrorCode.*;
@@ -35,57 +33,50 @@ import static reactor.core.scheduler.Schedulers.boundedElastic;
 public class ChatServiceImpl implements ChatService {
 
     private static final int GROUP_CHAT_PAGE_SIZE = 5;
+    private static final int HISTORY_MAX_PAGE_SIZE = 100;
 
     private final ChatRoomRepository chatRoomRepository;
     private final ChatParticipantRepository chatParticipantRepository;
     private final ChatMessageRepository chatMessageRepository;
-    private final ReadStatusRepository readStatusRepository;
     private final UserRepository userRepository;
     private final TransactionTemplate transactionTemplate;
-
-    public ChatServiceImpl(ChatRoomRepository chatRoomRepository, ChatParticipantRepository chatParticipantRepository, ChatMessageRepository chatMessageRepository, ReadStatusRepository readStatusRepository, UserRepository userRepository, TransactionTemplate transactionTemplate) {
+    private final ChatMessageBatchWriter chatMessageBatchWriter;
+    private final RecentMessageCache recentMessageCache;
+    private final UnreadCounterService unreadCounterService;
+    private final RedisPubSubService redisPubSubService;
+    private final UserProfileCache userProfileCache;
+    private final RoomMembershipIndex roomMembershipIndex;
+    private final PresenceService presenceService;
+
+    public ChatServiceImpl(ChatRoomRepository chatRoomRepository, ChatParticipantRepository chatParticipantRepository, ChatMessageRepository chatMessageRepository, UserRepository userRepository, TransactionTemplate transactionTemplate, ChatMessageBatchWriter chatMessageBatchWriter, RecentMessageCache recentMessageCache, UnreadCounterService unreadCounterService, RedisPubSubService redisPubSubService, UserProfileCache userProfileCache, RoomMembershipIndex roomMembershipIndex, PresenceService presenceService) {
         this.chatRoomRepository = chatRoomRepository;
         this.chatParticipantRepository = chatParticipantRepository;
         this.chatMessageRepository = chatMessageRepository;
-        this.readStatusRepository = readStatusRepository;
         this.userRepository = userRepository;
         this.transactionTemplate = transactionTemplate;
+        this.chatMessageBatchWriter = chatMessageBatchWriter;
+        this.recentMessageCache = recentMessageCache;
+        this.unreadCounterService = unreadCounterService;
+        this.redisPubSubService = redisPubSubService;
+        this.userProfileCache = userProfileCache;
+        this.roomMembershipIndex = roomMembershipIndex;
+        this.presenceService = presenceService;
     }
 
     @Override
-    public Mono<Void> saveMessage(Long roomId, ChatMessageReqDto chatMessageReqDto) {
-        return Mono.fromRunnable(() -> transactionTemplate.executeWithoutResult(status -> {
-            // 채팅방 조회
-            ChatRoom chatRoom = chatRoomRepository.findById(roomId).orElseThrow(() -> new BusinessException(ROOM_NOT_FOUND));
-
-            // 보낸사람 조회
-            User sender = userRepository.findById(chatMessageReqDto.getSenderId()).orElseThrow(() -> new BusinessException(MEMBER_NOT_FOUND));
-
-            // 메시지 저장
-            ChatMessage chatMessage = ChatMessage.builder()
-                    .chatRoom(chatRoom)
-                    .user(sender)
-                    .contents(chatMessageReqDto.getMessage())
-                    .build();
-            chatMessageRepository.save(chatMessage);
-
-            // 사용자 별로 읽음 여부 저장(보낸사람만 읽음 표시)
-            List<ChatParticipant> chatParticipantList = chatRoom.getChatParticipantList();
-            for (ChatParticipant p : chatParticipantList) {
-                ReadStatus readStatus = ReadStatus.builder()
-                        .chatRoom(chatRoom)
-                        .user(p.getUser())
-                        .chatMessage(chatMessage)
-                        .isRead(p.getUser().equals(sender))
-                        .build();
-                readStatusRepository.save(readStatus);
-            }
-        })).subscribeOn(boundedElastic()).then();
+    public Mono<ChatMessageDto> saveMessage(Long roomId, ChatMessageReqDto chatMessageReqDto) {
+        // 메시지별 트랜잭션 대신 write-behind 배치에 넣고, 배치가 커밋되면 완료된다
+        // 읽음 여부는 참여자별 워터마크(last_read_message_id)로 계산하므로 메시지 한 건만 저장한다
+        return chatMessageBatchWriter.write(roomId, chatMessageReqDto.getSenderId(), chatMessageReqDto.getMessage())
+                // 커밋된 메시지만 다른 참여자의 안 읽은 수에 반영한다
+                .flatMap(saved -> roomMembershipIndex.members(roomId)
+                        .flatMap(memberIds -> unreadCounterService.increment(roomId, saved.getSenderId(), memberIds))
+                        .thenReturn(saved));
     }
 
     @Override
     public Mono<Void> createGroupRoom(String chatRoomName, Long userId) {
-        return Mono.fromRunnable(() -> {
+        return Mono.fromCallable(() -> {
             // 현재 사용자 확인
             User user = userRepository.findById(userId).orElseThrow(() -> new BusinessException(MEMBER_NOT_FOUND));
 
@@ -102,7 +93,9 @@ public class ChatServiceImpl implements ChatService {
                     .user(user)
                     .build();
             chatParticipantRepository.save(chatParticipant);
-        }).subscribeOn(boundedElastic()).then();
+            return chatRoom.getId();
+        }).subscribeOn(boundedElastic())
+                .flatMap(roomId -> roomMembershipIndex.publishJoin(roomId, userId));
     }
 
     @Override
@@ -135,7 +128,7 @@ public class ChatServiceImpl implements ChatService {
 
     @Override
     public Mono<Void> addParticipantToGroupChat(Long roomId, Long userId) {
-        return Mono.fromRunnable(() -> {
+        return Mono.fromCallable(() -> {
             // 채팅방 조회
             ChatRoom chatRoom = chatRoomRepository.findById(roomId).orElseThrow(() -> new BusinessException(ROOM_NOT_FOUND));
 
@@ -146,8 +139,11 @@ public class ChatServiceImpl implements ChatService {
             Optional<ChatParticipant> byChatRoomAndUser = chatParticipantRepository.findByChatRoomAndUser(chatRoom, user);
             if (!byChatRoomAndUser.isPresent()) {
                 addParticipantInternal(chatRoom, user);
+                return true;
             }
-        }).subscribeOn(boundedElastic()).then();
+            return false;
+        }).subscribeOn(boundedElastic())
+                .flatMap(added -> added ? roomMembershipIndex.publishJoin(roomId, userId) : Mono.empty());
     }
 
     private ChatRoomResDto toChatRoomListResDto(ChatRoom chatRoom) {
@@ -161,85 +157,156 @@ public class ChatServiceImpl implements ChatService {
     public Mono<Void> addParticipantToRoom(ChatRoom chatRoom, User user) {
         return Mono.fromRunnable(() -> addParticipantInternal(chatRoom, user))
                 .subscribeOn(boundedElastic())
-                .then();
+                .then(Mono.defer(() -> roomMembershipIndex.publishJoin(chatRoom.getId(), user.getId())));
     }
 
     @Override
-    public Mono<List<ChatMessageDto>> getChatHistory(Long roomId, Long userId) {
-        return Mono.fromCallable(() -> transactionTemplate.execute(status -> {
-            // 해당 채팅방의 참여자가 아닐 경우 에러 반환
-            ChatRoom chatRoom = chatRoomRepository.findById(roomId).orElseThrow(() -> new BusinessException(ROOM_NOT_FOUND));
-            User user = userRepository.findById(userId).orElseThrow(() -> new BusinessException(MEMBER_NOT_FOUND));
-            Optional<ChatParticipant> byChatRoomAndUser = chatParticipantRepository.findByChatRoomAndUser(chatRoom, user);
-            if (!byChatRoomAndUser.isPresent()) {
-                throw new BusinessException(ACCESS_DENIED);
-            }
-            // 특정 room에 대한 메시지 조회
-            List<ChatMessage> chatMessages = chatMessageRepository.findByChatRoomOrderByCreatedAtAsc(chatRoom);
-            List<ChatMessageDto> chatMessageDtos = new ArrayList<>();
-            for (ChatMessage c : chatMessages) {
-                ChatMessageDto chatMessageDto = ChatMessageDto.builder()
-                        .message(c.getContents())
-                        .nickName(c.getUser().getNickname())
-                        .senderId(c.getUser().getId())
-                        .createdAt(c.getCreatedAt())
-                        .build();
-                chatMessageDtos.add(chatMessageDto);
+    public Mono<ChatHistoryResDto> getChatHistory(Long roomId, Long userId, Long before, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, HISTORY_MAX_PAGE_SIZE));
+        long cursor = before != null ? before : Long.MAX_VALUE;
+        // 첫 페이지는 캐시가 비어 있으면 채워서 읽고, 과거 페이지는 캐시에 있을 때만 사용한다
+        Mono<RecentMessageCache.Snapshot> recent = before == null
+                ? recentMessageCache.getOrLoad(roomId)
+                : recentMessageCache.get(roomId);
+
+        // 해당 채팅방의 참여자가 아닐 경우 에러 반환
+        return isRoomParticipant(userId, roomId)
+                .flatMap(isParticipant -> isParticipant ? recent : Mono.error(new BusinessException(ACCESS_DENIED)))
+                .flatMap(snapshot -> Mono.justOrEmpty(pageFromCache(snapshot, cursor, pageSize)))
+                .switchIfEmpty(Mono.defer(() -> loadHistoryPage(roomId, cursor, pageSize)));
+    }
+
+    private Optional<ChatHistoryResDto> pageFromCache(RecentMessageCache.Snapshot snapshot, long cursor, int pageSize) {
+        List<ChatMessageDto> page = new ArrayList<>(pageSize + 1);
+        for (ChatMessageDto dto : snapshot.newestFirst()) {
+            if (dto.getMessageId() < cursor) {
+                page.add(dto);
+                if (page.size() > pageSize) {
+                    break;
+                }
             }
-            return chatMessageDtos;
-        })).map(Objects::requireNonNull)
+        }
+        // 캐시로 한 페이지를 다 채우지 못했고, 캐시가 채팅방 전체를 담고 있지도 않다면 DB로 간다
+        if (page.size() <= pageSize && !snapshot.complete()) {
+            return Optional.empty();
+        }
+        return Optional.of(toHistoryPage(page, pageSize));
+    }
+
+    private Mono<ChatHistoryResDto> loadHistoryPage(Long roomId, long cursor, int pageSize) {
+        // 다음 페이지 존재 여부 확인을 위해 한 건 더 조회
+        return Mono.fromCallable(() -> chatMessageRepository.findHistoryPage(roomId, cursor, PageRequest.of(0, pageSize + 1)))
+                .map(chatMessageDtos -> toHistoryPage(chatMessageDtos, pageSize))
                 .subscribeOn(boundedElastic());
     }
 
-    @Override
-    public Mono<Boolean> isRoomParticipant(Long userId, Long roomId) {
-        return Mono.fromCallable(() -> {
-            // 채팅방 조회
-            ChatRoom chatRoom = chatRoomRepository.findById(roomId).orElseThrow(() -> new BusinessException(ROOM_NOT_FOUND));
+    // 최신순 목록(최대 pageSize + 1건)을 오래된 순 한 페이지와 다음 커서로 변환
+    private ChatHistoryResDto toHistoryPage(List<ChatMessageDto> newestFirst, int pageSize) {
+        boolean hasNext = newestFirst.size() > pageSize;
+        List<ChatMessageDto> page = new ArrayList<>(hasNext ? newestFirst.subList(0, pageSize) : newestFirst);
+        Collections.reverse(page);
+        Long nextCursor = hasNext ? page.get(0).getMessageId() : null;
+        return new ChatHistoryResDto(page, nextCursor, hasNext);
+    }
 
-            // 유저 조회
-            User user = userRepository.findById(userId).orElseThrow(() -> new BusinessException(MEMBER_NOT_FOUND));
+    @Override
+    public Mono<ChatPresenceResDto> getRoomPresence(Long roomId, Long userId) {
+        // 해당 채팅방의 참여자가 아닐 경우 에러 반환
+        return isRoomParticipant(userId, roomId)
+                .flatMap(isParticipant -> isParticipant
+                        ? presenceService.getOnlineUserIds(roomId)
+                        : Mono.error(new BusinessException(ACCESS_DENIED)))
+                .map(userIds -> new ChatPresenceResDto(roomId, userIds));
+    }
 
-            // 이미 참여자인지 검증
-            Optional<ChatParticipant> byChatRoomAndUser = chatParticipantRepository.findByChatRoomAndUser(chatRoom, user);
-            return byChatRoomAndUser.isPresent();
-        }).subscribeOn(boundedElastic());
+    @Override
+    public Mono<Boolean> isRoomParticipant(Long userId, Long roomId) {
+        // 노드별 참여자 인덱스 조회 (방을 처음 볼 때만 DB에서 읽는다)
+        // 참여자가 아닐 때만 방/유저 존재 여부를 확인해 ROOM_NOT_FOUND / MEMBER_NOT_FOUND 를 구분한다
+        return roomMembershipIndex.isMember(roomId, userId)
+                .flatMap(isMember -> isMember || roomId == null || userId == null
+                        ? Mono.just(isMember)
+                        : Mono.fromCallable(() -> {
+                                    if (!chatRoomRepository.existsById(roomId)) {
+                                        throw new BusinessException(ROOM_NOT_FOUND);
+                                    }
+                                    return false;
+                                })
+                                .subscribeOn(boundedElastic())
+                                .flatMap(notMember -> userProfileCache.get(userId).thenReturn(false)));
     }
 
     @Override
-    public Mono<Void> messageRead(Long roomId, Long userId) {
-        return Mono.fromRunnable(() -> transactionTemplate.executeWithoutResult(status -> {
-            // 채팅방 조회
-            ChatRoom chatRoom = chatRoomRepository.findById(roomId).orElseThrow(() -> new BusinessException(ROOM_NOT_FOUND));
-            // 유저 조회
-            User user = userRepository.findById(userId).orElseThrow(() -> new BusinessException(MEMBER_NOT_FOUND));
-            // 읽음 처리
-            List<ReadStatus> readStatuses = readStatusRepository.findByChatRoomAndUser(chatRoom, user);
-            for (ReadStatus r : readStatuses) {
-                r.updateIsRead(true);
+    public Mono<ChatReadResDto> messageRead(Long roomId, Long userId, Long messageId) {
+        return Mono.fromCallable(() -> transactionTemplate.execute(status -> {
+            if (!chatRoomRepository.existsById(roomId)) {
+                throw new BusinessException(ROOM_NOT_FOUND);
             }
-        })).subscribeOn(boundedElastic()).then();
+            // 아직 없는 메시지까지 읽음 처리되지 않도록 채팅방의 최신 메시지 ID로 제한한다
+            long latest = chatMessageRepository.findLatestMessageIdByRoomId(roomId).orElse(0L);
+            long readUpTo = messageId != null ? Math.min(messageId, latest) : latest;
+
+            // 안 읽은 메시지가 몇 건이든 워터마크 한 행만 갱신한다
+            int updated = chatParticipantRepository.advanceLastReadMessageId(roomId, userId, readUpTo);
+            if (updated == 0 && !chatParticipantRepository.existsByChatRoomIdAndUserId(roomId, userId)) {
+                throw new BusinessException(ACCESS_DENIED);
+            }
+            long remaining = updated > 0 && readUpTo < latest
+                    ? chatMessageRepository.countUnread(roomId, userId, readUpTo)
+                    : 0L;
+            return new ReadResult(new ChatReadResDto(roomId, readUpTo, updated), remaining);
+        })).subscribeOn(boundedElastic())
+                .flatMap(result -> {
+                    if (result.response().getUpdated() == 0) {
+                        return Mono.just(result.response());
+                    }
+                    ChatReadEventDto event = ChatReadEventDto.builder()
+                            .userId(userId)
+                            .roomId(roomId)
+                            .lastReadMessageId(result.response().getLastReadMessageId())
+                            .unReadCount(result.remaining())
+                            .build();
+                    return unreadCounterService.set(userId, roomId, result.remaining())
+                            .then(redisPubSubService.publishReadEvent(event))
+                            .thenReturn(result.response());
+                });
+    }
+
+    private record ReadResult(ChatReadResDto response, long remaining) {
     }
 
     @Override
     public Mono<List<MyChatListResDto>> getMyChatRooms(Long userId) {
-        return Mono.fromCallable(() -> transactionTemplate.execute(status -> {
-            User user = userRepository.findById(userId).orElseThrow(() -> new BusinessException(MEMBER_NOT_FOUND));
-            List<ChatParticipant> chatParticipants = chatParticipantRepository.findAllByUser(user);
-            List<MyChatListResDto> dtos = new ArrayList<>();
-            for (ChatParticipant p : chatParticipants) {
-                Long count = readStatusRepository.countByChatRoomAndUserAndIsReadFalse(p.getChatRoom(), p.getUser());
-                MyChatListResDto dto = MyChatListResDto.builder()
-                        .roomId(p.getChatRoom().getId())
-                        .roomName(p.getChatRoom().getName())
-                        .isGroupChat(p.getChatRoom().isGroupChat())
-                        .unReadCount(count)
-                        .build();
-                dtos.add(dto);
-            }
-            return dtos;
-        })).map(Objects::requireNonNull)
-                .subscribeOn(boundedElastic());
+        // 채팅방 목록(조인 쿼리 1회)과 안 읽은 수(Redis 해시 1회)를 동시에 조회한다
+        // 유저 존재 확인은 프로필 캐시로 대신한다 (없으면 MEMBER_NOT_FOUND)
+        Mono<List<ChatRoom>> chatRooms = userProfileCache.get(userId)
+                .then(Mono.fromCallable(() -> chatParticipantRepository.findChatRoomsByUserId(userId))
+                        .subscribeOn(boundedElastic()));
+        Mono<Map<Long, Long>> unreadCounts = unreadCounterService.getCounts(userId)
+                .switchIfEmpty(Mono.defer(() -> rebuildUnreadCounts(userId)));
+
+        return Mono.zip(chatRooms, unreadCounts)
+                .map(tuple -> tuple.getT1().stream()
+                        .map(chatRoom -> MyChatListResDto.builder()
+                                .roomId(chatRoom.getId())
+                                .roomName(chatRoom.getName())
+                                .isGroupChat(chatRoom.isGroupChat())
+                                .unReadCount(tuple.getT2().getOrDefault(chatRoom.getId(), 0L))
+                                .build())
+                        .collect(Collectors.toList()));
+    }
+
+    // Redis 카운터가 없으면(만료/최초) 워터마크 기준으로 한 번에 집계해 다시 채운다.
+    // 집계 전에 재계산 표시를 먼저 남겨 집계~seed 사이의 증가분이 사라지지 않게 한다
+    private Mono<Map<Long, Long>> rebuildUnreadCounts(Long userId) {
+        return unreadCounterService.beginRebuild(userId)
+                .flatMap(owner -> Mono.fromCallable(() -> chatMessageRepository.countUnreadByRoom(userId).stream()
+                                .collect(Collectors.toMap(RoomUnreadCountDto::getRoomId, RoomUnreadCountDto::getUnReadCount)))
+                        .subscribeOn(boundedElastic())
+                        // 다른 요청이 재계산 중이면 집계값만 돌려준다
+                        .flatMap(counts -> owner
+                                ? unreadCounterService.seed(userId, counts).thenReturn(counts)
+                                : Mono.just(counts)));
     }
 
     @Override
@@ -260,7 +327,8 @@ public class ChatServiceImpl implements ChatService {
             if(chatParticipants.isEmpty()){
                 chatRoomRepository.delete(chatRoom);
             }
-        }).subscribeOn(boundedElastic()).then();
+        }).subscribeOn(boundedElastic())
+                .then(Mono.defer(() -> roomMembershipIndex.publishLeave(roomId, userId)));
     }
 
     @Override
@@ -274,7 +342,7 @@ public class ChatServiceImpl implements ChatService {
             //        나와 상대방이 1:1채팅에 이미 참석하고 있다면 해당 roomId return
             Optional<ChatRoom> chatRoom = chatParticipantRepository.findExistingPrivateRoom(user.getId(), otherMember.getId());
             if(chatRoom.isPresent()){
-                return chatRoom.get().getId();
+                return new PrivateRoom(chatRoom.get().getId(), false);
             }
 
             // 1:1 채팅방이 없을 경우 채팅방 개설
@@ -288,14 +356,25 @@ public class ChatServiceImpl implements ChatService {
             addParticipantInternal(newRoom, user);
             addParticipantInternal(newRoom, otherMember);
 
-            return newRoom.getId();
-        }).subscribeOn(boundedElastic());
+            return new PrivateRoom(newRoom.getId(), true);
+        }).subscribeOn(boundedElastic())
+                .flatMap(room -> !room.created()
+                        ? Mono.just(room.roomId())
+                        : roomMembershipIndex.publishJoin(room.roomId(), userId)
+                                .then(roomMembershipIndex.publishJoin(room.roomId(), otherMemberId))
+                                .thenReturn(room.roomId()));
+    }
+
+    private record PrivateRoom(Long roomId, boolean created) {
     }
 
     private void addParticipantInternal(ChatRoom chatRoom, User user) {
+        // 참여 이전의 메시지는 안 읽은 메시지로 세지 않도록 워터마크를 최신 메시지로 맞춘다
+        Long lastReadMessageId = chatMessageRepository.findLatestMessageId(chatRoom).orElse(0L);
         ChatParticipant chatParticipant = ChatParticipant.builder()
                 .chatRoom(chatRoom)
                 .user(user)
+                .lastReadMessageId(lastReadMessageId)
                 .build();
         chatParticipantRepository.save(chatParticipant);
     }
@@ -0,0 +1,76 @@
+package com.ktb.community.chat.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 송신 프레임 묶음 전송 (핸드셰이크에서 coalesce=true 로 요청한 세션만).
+ * window 동안 쌓인 프레임을 JSON 배열 프레임 하나로 합쳐 보내 메시지가 많은 방에서 write/flush 횟수를 줄인다.
+ * 배열 하나는 max-bytes 를 넘지 않으며, 프레임 하나가 그보다 크면 그 프레임만 배열로 보낸다.
+ */
+@Component
+public class FrameCoalescer {
+
+    // 한 번에 모을 최대 프레임 수 (바이트 상한과 별개로 버퍼 크기를 제한한다)
+    private static final int MAX_FRAMES_PER_BATCH = 256;
+
+    private static final byte[] OPEN = "[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLOSE = "]".getBytes(StandardCharsets.US_ASCII);
+
+    private final Duration window;
+    private final int maxBytes;
+
+    public FrameCoalescer(@Value("${chat.session.coalesce.window-ms:20}") long windowMs,
+                          @Value("${chat.session.coalesce.max-bytes:65536}") int maxBytes) {
+        this.window = Duration.ofMillis(windowMs);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 각 프레임(JSON 객체)을 [a,b,...] 배열 프레임으로 합친다. 입력 버퍼의 소유권은 결과 버퍼로 넘어간다.
+     * fairBackpressure 로 하위 요청만큼만 가져오므로 느린 클라이언트는 여전히 세션 송신 대기열의 정책을 따른다.
+     */
+    public Flux<ByteBuf> coalesce(Flux<ByteBuf> frames) {
+        return frames.bufferTimeout(MAX_FRAMES_PER_BATCH, window, true)
+                .concatMapIterable(this::toArrayFrames);
+    }
+
+    private List<ByteBuf> toArrayFrames(List<ByteBuf> batch) {
+        List<ByteBuf> arrays = new ArrayList<>(1);
+        CompositeByteBuf current = null;
+        int currentBytes = 0;
+        for (ByteBuf frame : batch) {
+            // 현재 배열에 붙이면 "," + 프레임 + "]" 만큼 늘어난다
+            if (current != null && currentBytes + 1 + frame.readableBytes() + 1 > maxBytes) {
+                arrays.add(current.addComponent(true, Unpooled.wrappedBuffer(CLOSE)));
+                current = null;
+            }
+            if (current == null) {
+                current = ByteBufAllocator.DEFAULT.compositeBuffer(batch.size() * 2 + 1);
+                current.addComponent(true, Unpooled.wrappedBuffer(OPEN));
+                currentBytes = 1;
+            } else {
+                current.addComponent(true, Unpooled.wrappedBuffer(SEPARATOR));
+                currentBytes++;
+            }
+            // 복사 없이 구성 요소로 붙인다 (프레임 참조는 composite 가 해제한다)
+            current.addComponent(true, frame);
+            currentBytes += frame.readableBytes();
+        }
+        if (current != null) {
+            arrays.add(current.addComponent(true, Unpooled.wrappedBuffer(CLOSE)));
+        }
+        return arrays;
+    }
+}
@@ -0,0 +1,131 @@
+package com.ktb.community.chat.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 노드 전체에서 동시에 처리 중인 수신 프레임 수 상한 (비동기 세마포어).
+ * 자리가 없으면 처리를 시작하지 않고 기다리며, 기다리는 동안 해당 세션의 수신 스트림은 더 읽지 않으므로
+ * 소켓 읽기까지 backpressure 가 전달된다.
+ */
+@Component
+public class InboundConcurrencyLimiter {
+
+    private final int maxInFlight;
+    private final AtomicInteger available;
+    private final Queue<Permit> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public InboundConcurrencyLimiter(MeterRegistry meterRegistry,
+                                     @Value("${chat.inbound.max-in-flight-per-node:512}") int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.available = new AtomicInteger(maxInFlight);
+        Gauge.builder("chat.inbound.in-flight", this::getInFlight)
+                .description("노드에서 처리 중인 수신 프레임 수")
+                .register(meterRegistry);
+        Gauge.builder("chat.inbound.waiting", waiting, AtomicInteger::get)
+                .description("처리 자리를 기다리는 수신 프레임 수")
+                .register(meterRegistry);
+    }
+
+    // 처리 중(자리를 가진) 프레임 수
+    public int getInFlight() {
+        return maxInFlight - available.get();
+    }
+
+    /**
+     * 자리를 얻은 뒤 work 를 구독하고, 끝나거나(오류 포함) 취소되면 자리를 돌려준다.
+     */
+    public <T> Mono<T> withPermit(Mono<T> work) {
+        return Mono.usingWhen(acquire(), permit -> work, Permit::release, (permit, e) -> permit.release(), Permit::release);
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.create(sink -> {
+            Permit permit = new Permit(sink);
+            sink.onCancel(permit::cancel);
+            if (tryAcquire()) {
+                permit.grant();
+                return;
+            }
+            waiters.add(permit);
+            waiting.incrementAndGet();
+            // 큐에 넣는 사이 자리가 났을 수 있다
+            if (tryAcquire()) {
+                handOff();
+            }
+        });
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = available.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (available.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    // 가진 자리 하나를 다음 대기자에게 넘긴다. 대기자가 없으면 반납한다
+    private void handOff() {
+        Permit next;
+        while ((next = waiters.poll()) != null) {
+            waiting.decrementAndGet();
+            if (next.grant()) {
+                return;
+            }
+        }
+        available.incrementAndGet();
+        // 반납하는 사이 들어온 대기자
+        if (!waiters.isEmpty() && tryAcquire()) {
+            handOff();
+        }
+    }
+
+    private final class Permit {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int DONE = 2;
+
+        private final MonoSink<Permit> sink;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Permit(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        private boolean grant() {
+            if (!state.compareAndSet(WAITING, GRANTED)) {
+                // 이미 취소된 대기자
+                return false;
+            }
+            sink.success(this);
+            return true;
+        }
+
+        private void cancel() {
+            // 기다리다 취소되면 큐에서는 grant 할 때 건너뛰고, 자리를 받은 직후 취소되면 돌려준다
+            if (!state.compareAndSet(WAITING, DONE)) {
+                release();
+            }
+        }
+
+        private Mono<Void> release() {
+            if (state.compareAndSet(GRANTED, DONE)) {
+                handOff();
+            }
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.ktb.community.chat.service;
+
+import com.ktb.community.chat.dto.ChatMessageDto;
+import com.ktb.community.chat.repository.ChatMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static reactor.core.scheduler.Schedulers.boundedElastic;
+
+/**
+ * 재연결한 클라이언트가 놓친 메시지(lastSeenMessageId 이후)를 찾는다.
+ * 최근 메시지 캐시가 구간을 모두 담고 있으면 캐시에서, 아니면 DB 키셋 조회로 읽는다.
+ * max-replay-messages 를 넘으면 재전송하지 않고 reload 로 응답한다 (클라이언트가 이력을 처음부터 다시 읽는다).
+ */
+@Component
+public class MessageReplayService {
+
+    /**
+     * @param messages 놓친 메시지 (오래된 순)
+     * @param reloadRequired true 면 messages 는 비어 있고 클라이언트가 전체를 다시 불러와야 한다
+     */
+    public record Gap(List<ChatMessageDto> messages, boolean reloadRequired) {
+        public static final Gap RELOAD = new Gap(List.of(), true);
+    }
+
+    private final RecentMessageCache recentMessageCache;
+    private final ChatMessageRepository chatMessageRepository;
+    private final int maxReplayMessages;
+    private final Counter fromCache;
+    private final Counter fromDatabase;
+    private final Counter reloads;
+
+    public MessageReplayService(RecentMessageCache recentMessageCache,
+                                ChatMessageRepository chatMessageRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${chat.resume.max-replay-messages:200}") int maxReplayMessages) {
+        this.recentMessageCache = recentMessageCache;
+        this.chatMessageRepository = chatMessageRepository;
+        this.maxReplayMessages = maxReplayMessages;
+        this.fromCache = replays(meterRegistry, "cache");
+        this.fromDatabase = replays(meterRegistry, "db");
+        this.reloads = replays(meterRegistry, "reload");
+    }
+
+    private static Counter replays(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("chat.resume.replays")
+                .description("재연결 재전송 처리 수")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    public Mono<Gap> findGap(Long roomId, long lastSeenMessageId) {
+        return recentMessageCache.get(roomId)
+                .flatMap(snapshot -> Mono.justOrEmpty(gapFromCache(snapshot, lastSeenMessageId)))
+                .switchIfEmpty(Mono.defer(() -> loadGap(roomId, lastSeenMessageId)))
+                .doOnNext(gap -> {
+                    if (gap.reloadRequired()) {
+                        reloads.increment();
+                    }
+                })
+                // DB 오류 등으로 구간을 알 수 없으면 클라이언트가 다시 불러오게 한다
+                .onErrorResume(e -> {
+                    reloads.increment();
+                    return Mono.just(Gap.RELOAD);
+                });
+    }
+
+    // 캐시에서 가장 오래된 메시지가 lastSeen 이하이거나 캐시가 방 전체를 담고 있을 때만 캐시로 충분하다
+    private Optional<Gap> gapFromCache(RecentMessageCache.Snapshot snapshot, long lastSeenMessageId) {
+        List<ChatMessageDto> newestFirst = snapshot.newestFirst();
+        List<ChatMessageDto> missed = new ArrayList<>();
+        boolean covered = snapshot.complete();
+        for (ChatMessageDto dto : newestFirst) {
+            if (dto.getMessageId() <= lastSeenMessageId) {
+                covered = true;
+                break;
+            }
+            missed.add(dto);
+        }
+        if (!covered) {
+            return Optional.empty();
+        }
+        if (missed.size() > maxReplayMessages) {
+            return Optional.of(Gap.RELOAD);
+        }
+        fromCache.increment();
+        Collections.reverse(missed);
+        return Optional.of(new Gap(missed, false));
+    }
+
+    private Mono<Gap> loadGap(Long roomId, long lastSeenMessageId) {
+        // 한 건 더 읽어 max-replay-messages 를 넘는지 확인한다
+        return Mono.fromCallable(() -> chatMessageRepository.findMessagesAfter(
+                        roomId, lastSeenMessageId, PageRequest.of(0, maxReplayMessages + 1)))
+                .subscribeOn(boundedElastic())
+                .map(messages -> {
+                    if (messages.size() > maxReplayMessages) {
+                        return Gap.RELOAD;
+                    }
+                    fromDatabase.increment();
+                    return new Gap(messages, false);
+                });
+    }
+}
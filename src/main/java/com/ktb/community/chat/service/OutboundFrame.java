@@ -0,0 +1,42 @@
+package com.ktb.community.chat.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * 한 번만 UTF-8 로 인코딩한 WebSocket 텍스트 프레임 페이로드.
+ * 수신 세션마다 retainedDuplicate 로 같은 메모리를 공유하고, 각 세션은 전송(또는 폐기) 시 자기 참조만 해제한다.
+ * 만든 쪽은 세션들에 나눠준 뒤 release() 로 자신의 참조를 해제해야 한다.
+ */
+public final class OutboundFrame {
+
+    private final ByteBuf content;
+
+    private OutboundFrame(ByteBuf content) {
+        this.content = content;
+    }
+
+    public static OutboundFrame of(String payload) {
+        return new OutboundFrame(ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, payload));
+    }
+
+    // 세션 하나가 소유할 참조 (읽기 인덱스는 독립적, 내용은 공유)
+    public ByteBuf retainedDuplicate() {
+        return content.retainedDuplicate();
+    }
+
+    // 프레임을 다른 스레드에 넘길 때 그쪽이 해제할 참조를 하나 더한다
+    public OutboundFrame retain() {
+        content.retain();
+        return this;
+    }
+
+    public int readableBytes() {
+        return content.readableBytes();
+    }
+
+    public void release() {
+        content.release();
+    }
+}
@@ -0,0 +1,240 @@
+package com.ktb.community.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ktb.community.chat.dto.ChatPresenceFrameDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 채팅방 접속 상태. Redis ZSET(chat:room:{roomId}:presence, member = userId, score = 마지막 하트비트 시각 ms)에 둔다.
+ * SessionRegistry 의 구독 변경은 방을 dirty 로 표시만 하고, flush 주기마다 dirty 방의 로컬 구독 유저를 이전 상태와 비교해
+ * 들어온/나간 유저만 Redis 에 반영한다. heartbeat 주기에는 이 노드의 모든 유저 점수를 갱신하고 ttl 이 지난 항목을 지운다.
+ * ZSET 에 새로 추가되거나 빠진 유저만 방 채널로 presence 프레임을 보낸다 (모든 노드의 구독자에게 전달된다).
+ * 한 유저가 여러 노드에 접속해 있으면, 한 노드에서 나갈 때 잠시 left 로 보였다가 다른 노드의 다음 heartbeat 에 joined 로 돌아온다.
+ */
+@Component
+public class PresenceService implements SessionRegistry.SubscriptionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PresenceService.class);
+    private static final String JOINED = "+";
+    private static final String LEFT = "-";
+
+    // ARGV: ttl(ms), 추가할 수 n, 추가할 userId n개, 뺄 userId 나머지. 시각은 Redis TIME 기준
+    // 반환: 새로 추가된 항목은 "+userId", 빠진(만료 포함) 항목은 "-userId"
+    private static final RedisScript<List> UPDATE_SCRIPT = RedisScript.of("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local ttl = tonumber(ARGV[1])
+            local adds = tonumber(ARGV[2])
+            local changes = {}
+            for i = 3, 2 + adds do
+                if redis.call('ZADD', KEYS[1], now, ARGV[i]) == 1 then
+                    changes[#changes + 1] = '+' .. ARGV[i]
+                end
+            end
+            for i = 3 + adds, #ARGV do
+                if redis.call('ZREM', KEYS[1], ARGV[i]) == 1 then
+                    changes[#changes + 1] = '-' .. ARGV[i]
+                end
+            end
+            local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', '(' .. (now - ttl))
+            if #expired > 0 then
+                redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', '(' .. (now - ttl))
+                for _, member in ipairs(expired) do
+                    changes[#changes + 1] = '-' .. member
+                end
+            end
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                redis.call('PEXPIRE', KEYS[1], ttl)
+            end
+            return changes
+            """, List.class);
+
+    // ARGV: ttl(ms). UPDATE_SCRIPT 와 같은 Redis TIME 기준으로 ttl 안의 항목만 읽는다 (노드 시계가 어긋나도 같은 결과)
+    private static final RedisScript<List> ONLINE_SCRIPT = RedisScript.of("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            return redis.call('ZRANGEBYSCORE', KEYS[1], now - tonumber(ARGV[1]), '+inf')
+            """, List.class);
+
+    private final SessionRegistry sessionRegistry;
+    private final RedisPubSubService redisPubSubService;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration flushInterval;
+    private final long heartbeatNanos;
+    private final Duration ttl;
+    private final int concurrency;
+
+    private final Set<Long> dirtyRooms = ConcurrentHashMap.newKeySet();
+    // 마지막으로 Redis 에 반영한 방별 로컬 유저. flush 안에서만 쓴다 (flush 는 한 번에 하나씩 실행된다)
+    private final Map<Long, Set<Long>> published = new ConcurrentHashMap<>();
+    private long lastHeartbeatNanos = System.nanoTime();
+    private Disposable flusher;
+
+    public PresenceService(SessionRegistry sessionRegistry,
+                           RedisPubSubService redisPubSubService,
+                           @Qualifier("chatPubSub") ReactiveStringRedisTemplate redisTemplate,
+                           ObjectMapper objectMapper,
+                           @Value("${chat.presence.flush-interval-ms:1000}") long flushIntervalMs,
+                           @Value("${chat.presence.heartbeat-seconds:15}") long heartbeatSeconds,
+                           @Value("${chat.presence.ttl-seconds:45}") long ttlSeconds,
+                           @Value("${chat.presence.max-concurrent-updates:16}") int concurrency) {
+        this.sessionRegistry = sessionRegistry;
+        this.redisPubSubService = redisPubSubService;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.flushInterval = Duration.ofMillis(flushIntervalMs);
+        this.heartbeatNanos = Duration.ofSeconds(heartbeatSeconds).toNanos();
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.concurrency = concurrency;
+    }
+
+    @PostConstruct
+    void start() {
+        sessionRegistry.setSubscriptionListener(this);
+        this.flusher = Flux.interval(flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush()
+                        .onErrorResume(e -> {
+                            log.warn("presence flush failed", e);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+    }
+
+    @Override
+    public void onSubscriptionChanged(Long roomId) {
+        dirtyRooms.add(roomId);
+    }
+
+    /**
+     * ttl 안에 하트비트가 있었던 유저.
+     */
+    public Mono<List<Long>> getOnlineUserIds(Long roomId) {
+        return redisTemplate.execute(ONLINE_SCRIPT, List.of(key(roomId)), List.of(String.valueOf(ttl.toMillis())))
+                .next()
+                .map(members -> {
+                    List<Long> userIds = new ArrayList<>(members.size());
+                    for (Object member : members) {
+                        userIds.add(Long.valueOf(String.valueOf(member)));
+                    }
+                    return userIds;
+                })
+                .defaultIfEmpty(List.of());
+    }
+
+    Mono<Void> flush() {
+        boolean heartbeat = System.nanoTime() - lastHeartbeatNanos >= heartbeatNanos;
+        Set<Long> rooms = new HashSet<>();
+        for (Long roomId : dirtyRooms) {
+            dirtyRooms.remove(roomId);
+            rooms.add(roomId);
+        }
+        if (heartbeat) {
+            lastHeartbeatNanos = System.nanoTime();
+            rooms.addAll(published.keySet());
+        }
+        List<Mono<Void>> updates = new ArrayList<>(rooms.size());
+        for (Long roomId : rooms) {
+            Set<Long> current = sessionRegistry.getLocalUserIds(roomId);
+            Set<Long> previous = published.getOrDefault(roomId, Set.of());
+            // heartbeat 에는 남아 있는 유저 점수를 모두 갱신하고, 그 외에는 바뀐 유저만 보낸다
+            List<String> adds = new ArrayList<>();
+            List<String> removes = new ArrayList<>();
+            for (Long userId : current) {
+                if (heartbeat || !previous.contains(userId)) {
+                    adds.add(String.valueOf(userId));
+                }
+            }
+            for (Long userId : previous) {
+                if (!current.contains(userId)) {
+                    removes.add(String.valueOf(userId));
+                }
+            }
+            if (current.isEmpty()) {
+                published.remove(roomId);
+            } else {
+                published.put(roomId, current);
+            }
+            if (!adds.isEmpty() || !removes.isEmpty()) {
+                updates.add(update(roomId, adds, removes));
+            }
+        }
+        return Flux.fromIterable(updates)
+                .flatMap(update -> update, concurrency)
+                .then();
+    }
+
+    private Mono<Void> update(Long roomId, List<String> adds, List<String> removes) {
+        List<String> args = new ArrayList<>(adds.size() + removes.size() + 2);
+        args.add(String.valueOf(ttl.toMillis()));
+        args.add(String.valueOf(adds.size()));
+        args.addAll(adds);
+        args.addAll(removes);
+        return redisTemplate.execute(UPDATE_SCRIPT, List.of(key(roomId)), args)
+                .next()
+                .flatMap(changes -> publishDiff(roomId, changes))
+                .onErrorResume(e -> {
+                    log.warn("presence update failed roomId={}", roomId, e);
+                    // 다음 flush 에서 다시 맞춘다
+                    published.remove(roomId);
+                    dirtyRooms.add(roomId);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> publishDiff(Long roomId, List<?> changes) {
+        if (changes.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Long> joined = new ArrayList<>();
+        List<Long> left = new ArrayList<>();
+        for (Object change : changes) {
+            String value = String.valueOf(change);
+            Long userId = Long.valueOf(value.substring(1));
+            if (value.startsWith(JOINED)) {
+                joined.add(userId);
+            } else if (value.startsWith(LEFT)) {
+                left.add(userId);
+            }
+        }
+        ChatPresenceFrameDto frame = ChatPresenceFrameDto.builder()
+                .roomId(roomId)
+                .joined(joined)
+                .left(left)
+                .build();
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(frame))
+                .flatMap(json -> redisPubSubService.publishToRoom(roomId, json))
+                .then();
+    }
+
+    private static String key(Long roomId) {
+        return "chat:room:" + roomId + ":presence";
+    }
+}
@@ -0,0 +1,222 @@
+package com.ktb.community.chat.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ktb.community.chat.dto.ChatMessageDto;
+import com.ktb.community.chat.repository.ChatMessageRepository;
+import com.ktb.community.chat.repository.ChatRoomRepository;
+import com.ktb.community.exception.BusinessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static com.ktb.community.exception.ErrorCode.ROOM_NOT_FOUND;
+import static reactor.core.scheduler.Schedulers.boundedElastic;
+
+/**
+ * 채팅방별 최근 메시지 N건을 Redis 리스트에 보관하는 캐시.
+ * 메시지 저장 시 앞쪽에 추가(LPUSH)하고 N건으로 잘라내며, 이력/LLM 조회는 이 캐시를 먼저 읽고
+ * 없으면 MySQL에서 채운다.
+ * 여러 노드가 동시에 추가할 수 있으므로 읽을 때 메시지 ID 기준으로 정렬/중복 제거한다.
+ * <p>
+ * DB에서 채운 목록은 맨 뒤에 표시 항목(LOADED/COMPLETE)을 하나 둔다. 표시가 있으면 표시 앞까지 빠진 메시지가 없고,
+ * COMPLETE 이면 채팅방의 전체 메시지다. 표시가 목록 안에 있으므로 한 번의 LRANGE 로 원자적으로 읽히고,
+ * 축출/만료되면 목록과 함께 사라진다. 표시가 없는 목록(추가만 된 목록)은 채워지지 않은 것으로 본다.
+ */
+@Component
+public class RecentMessageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RecentMessageCache.class);
+
+    // 목록 끝 표시 항목 (메시지 JSON 은 '{' 로 시작하므로 겹치지 않는다)
+    static final String MARKER_LOADED = "#loaded";
+    static final String MARKER_COMPLETE = "#complete";
+
+    // 메시지는 항상 추가한다 (채우는 중인 목록에도 앞쪽에 남도록).
+    // 용량을 넘어 오래된 메시지를 잘라 내면 더는 전체가 아니므로 표시를 LOADED 로 바꿔 끝에 다시 둔다
+    private static final RedisScript<Long> APPEND_SCRIPT = RedisScript.of("""
+            redis.call('LPUSH', KEYS[1], ARGV[1])
+            local capacity = tonumber(ARGV[2])
+            local tail = redis.call('LINDEX', KEYS[1], -1)
+            local marked = tail == ARGV[4] or tail == ARGV[5]
+            local limit = capacity
+            if marked then
+                limit = capacity + 1
+            end
+            if redis.call('LLEN', KEYS[1]) > limit then
+                redis.call('LTRIM', KEYS[1], 0, capacity - 1)
+                if marked then
+                    redis.call('RPUSH', KEYS[1], ARGV[4])
+                end
+            end
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+    // DB에서 읽은 메시지(최신순)를 뒤쪽에 붙이고 끝에 표시를 둔다.
+    // 그 사이 추가된 메시지와 겹치는 항목은 읽을 때 중복 제거된다.
+    // DB 결과가 전체였어도 용량을 넘어 잘라 냈다면 LOADED 로 둔다
+    private static final RedisScript<Long> REFILL_SCRIPT = RedisScript.of("""
+            redis.call('LREM', KEYS[1], 0, ARGV[4])
+            redis.call('LREM', KEYS[1], 0, ARGV[5])
+            for i = 6, #ARGV do
+                redis.call('RPUSH', KEYS[1], ARGV[i])
+            end
+            local capacity = tonumber(ARGV[1])
+            local marker = ARGV[4]
+            if redis.call('LLEN', KEYS[1]) > capacity then
+                redis.call('LTRIM', KEYS[1], 0, capacity - 1)
+            elseif ARGV[3] == '1' then
+                marker = ARGV[5]
+            end
+            redis.call('RPUSH', KEYS[1], marker)
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ChatRoomRepository chatRoomRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final int capacity;
+    private final Duration ttl;
+
+    public RecentMessageCache(@Qualifier("chatPubSub") ReactiveStringRedisTemplate redisTemplate,
+                              ObjectMapper objectMapper,
+                              ChatRoomRepository chatRoomRepository,
+                              ChatMessageRepository chatMessageRepository,
+                              @Value("${chat.cache.recent-size:100}") int capacity,
+                              @Value("${chat.cache.recent-ttl-minutes:60}") long ttlMinutes) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.chatRoomRepository = chatRoomRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.capacity = capacity;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    /**
+     * 캐시에 담긴 최근 메시지.
+     * @param newestFirst 최신 메시지부터 정렬
+     * @param complete 채팅방의 전체 메시지가 캐시에 들어있는지 여부 (COMPLETE 표시)
+     */
+    public record Snapshot(List<ChatMessageDto> newestFirst, boolean complete) {
+    }
+
+    public Mono<Void> append(ChatMessageDto message) {
+        Long roomId = message.getRoomId();
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(message))
+                .flatMap(json -> redisTemplate.execute(APPEND_SCRIPT, List.of(listKey(roomId)),
+                                List.of(json, String.valueOf(capacity), String.valueOf(ttl.toMillis()),
+                                        MARKER_LOADED, MARKER_COMPLETE))
+                        .then())
+                .onErrorResume(e -> {
+                    // 빠진 메시지가 있는 목록을 믿지 않도록 지워서 다음 조회 때 DB에서 다시 채우게 한다
+                    log.warn("recent message cache append failed roomId={}, invalidating", roomId, e);
+                    return invalidate(roomId);
+                });
+    }
+
+    private Mono<Void> invalidate(Long roomId) {
+        return redisTemplate.delete(listKey(roomId))
+                .onErrorResume(e -> {
+                    log.warn("recent message cache invalidate failed roomId={}", roomId, e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * 캐시만 조회한다. 채워진 적이 없거나(표시 없음) Redis 오류면 empty.
+     */
+    public Mono<Snapshot> get(Long roomId) {
+        return redisTemplate.opsForList().range(listKey(roomId), 0, -1)
+                .collectList()
+                .flatMap(rawEntries -> Mono.justOrEmpty(toSnapshot(rawEntries)))
+                .onErrorResume(e -> {
+                    log.warn("recent message cache read failed roomId={}", roomId, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 캐시를 조회하고, 없으면 MySQL에서 최근 N건을 읽어 캐시를 채운 뒤 반환한다.
+     */
+    public Mono<Snapshot> getOrLoad(Long roomId) {
+        return get(roomId).switchIfEmpty(Mono.defer(() -> load(roomId)));
+    }
+
+    private Mono<Snapshot> load(Long roomId) {
+        return Mono.fromCallable(() -> {
+                    if (!chatRoomRepository.existsById(roomId)) {
+                        throw new BusinessException(ROOM_NOT_FOUND);
+                    }
+                    return chatMessageRepository.findHistoryPage(roomId, Long.MAX_VALUE, PageRequest.of(0, capacity));
+                })
+                .subscribeOn(boundedElastic())
+                .flatMap(dtos -> refill(roomId, dtos)
+                        .thenReturn(new Snapshot(dtos, dtos.size() < capacity)));
+    }
+
+    private Mono<Void> refill(Long roomId, List<ChatMessageDto> newestFirst) {
+        return Mono.fromCallable(() -> {
+                    List<String> args = new ArrayList<>(newestFirst.size() + 5);
+                    args.add(String.valueOf(capacity));
+                    args.add(String.valueOf(ttl.toMillis()));
+                    // DB에서 용량보다 적게 읽었다면 채팅방의 전체 메시지다
+                    args.add(newestFirst.size() < capacity ? "1" : "0");
+                    args.add(MARKER_LOADED);
+                    args.add(MARKER_COMPLETE);
+                    for (ChatMessageDto dto : newestFirst) {
+                        args.add(objectMapper.writeValueAsString(dto));
+                    }
+                    return args;
+                })
+                .flatMap(args -> redisTemplate.execute(REFILL_SCRIPT, List.of(listKey(roomId)), args)
+                        .then())
+                .onErrorResume(e -> {
+                    log.warn("recent message cache refill failed roomId={}", roomId, e);
+                    return Mono.empty();
+                });
+    }
+
+    private Optional<Snapshot> toSnapshot(List<String> rawEntries) {
+        String tail = rawEntries.isEmpty() ? null : rawEntries.get(rawEntries.size() - 1);
+        if (!MARKER_LOADED.equals(tail) && !MARKER_COMPLETE.equals(tail)) {
+            return Optional.empty();
+        }
+        // 메시지 ID 내림차순 + 중복 제거
+        Map<Long, ChatMessageDto> byId = new TreeMap<>(Comparator.reverseOrder());
+        for (String raw : rawEntries.subList(0, rawEntries.size() - 1)) {
+            if (raw.startsWith("#")) {
+                continue;
+            }
+            try {
+                ChatMessageDto dto = objectMapper.readValue(raw, ChatMessageDto.class);
+                if (dto.getMessageId() != null) {
+                    byId.putIfAbsent(dto.getMessageId(), dto);
+                }
+            } catch (JsonProcessingException e) {
+                log.warn("skip malformed recent message entry", e);
+            }
+        }
+        return Optional.of(new Snapshot(new ArrayList<>(byId.values()), MARKER_COMPLETE.equals(tail)));
+    }
+
+    private static String listKey(Long roomId) {
+        return "chat:room:" + roomId + ":recent";
+    }
+}
@@ -1,40 +1,237 @@
 package com.ktb.community.chat.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.ktb.community.chat.dto.ChatMessageDto;
+import com.ktb.community.chat.dto.ChatReadEventDto;
+import com.ktb.community.chat.mapper.InboundFrameReader;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.ReactiveSubscription;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Redis Pub/Sub 송수신.
+ * 채팅 메시지는 방별 채널(chat:room:{roomId})로 발행하고, 이 노드에 해당 방을 구독한 세션이 있을 때만
+ * 그 채널을 구독한다(SessionRegistry.RoomInterestListener). 입력 중 표시는 방별 typing 채널(chat:room:{roomId}:typing)로
+ * 따로 받아 낮은 우선순위로 보낸다. 읽음/프로필/참여자 이벤트는 모든 노드가 받는 전역 채널이다.
+ * <p>
+ * 방 채널 구독은 Redis 가 SUBSCRIBE 를 확인해야 메시지를 받기 시작하므로, 구독 직후 처리(재전송 등)는
+ * awaitRoomSubscribed 로 확인을 기다린다. 같은 방을 끊었다가 곧바로 다시 구독하면 이전 UNSUBSCRIBE 를
+ * 보낸 뒤에 SUBSCRIBE 한다 (모든 구독이 컨테이너의 pub/sub 연결 하나를 쓰므로 보낸 순서대로 처리된다).
+ */
 @Service
-public class RedisPubSubService {
+public class RedisPubSubService implements SessionRegistry.RoomInterestListener {
+
+    private static final String ROOM_CHANNEL_PREFIX = "chat:room:";
+    private static final String TYPING_CHANNEL_SUFFIX = ":typing";
+    // 유저 단위 이벤트(읽음 동기화 등) 채널
+    public static final String READ_EVENT_CHANNEL = "chat:read";
+
+    private static final Logger log = LoggerFactory.getLogger(RedisPubSubService.class);
+    private static final Retry RESUBSCRIBE = Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+            .maxBackoff(Duration.ofSeconds(30));
+    // SUBSCRIBE 확인을 기다리는 상한
+    private static final Duration SUBSCRIBE_TIMEOUT = Duration.ofSeconds(5);
 
     private final ReactiveStringRedisTemplate stringRedisTemplate;
+    private final ReactiveRedisMessageListenerContainer listenerContainer;
     private final SessionRegistry sessionRegistry;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UserProfileCache userProfileCache;
+    private final RoomMembershipIndex roomMembershipIndex;
+    private final ObjectMapper objectMapper;
+    private final InboundFrameReader inboundFrameReader;
+    // 이 노드가 구독 중인 방 채널
+    private final Map<Long, RoomChannel> roomListeners = new ConcurrentHashMap<>();
+    // 방별로 진행 중인 구독 해제. 다시 구독할 때는 이것이 끝난(UNSUBSCRIBE 를 보낸) 뒤에 SUBSCRIBE 한다
+    private final Map<Long, Mono<Void>> roomTeardowns = new ConcurrentHashMap<>();
+    private volatile Disposable globalListener;
+    // drain 이후에는 방 채널을 새로 구독하지 않는다
+    private volatile boolean closed;
 
     public RedisPubSubService(@Qualifier("chatPubSub") ReactiveStringRedisTemplate stringRedisTemplate,
-                              SessionRegistry sessionRegistry) {
+                              ReactiveRedisMessageListenerContainer listenerContainer,
+                              SessionRegistry sessionRegistry,
+                              UserProfileCache userProfileCache,
+                              RoomMembershipIndex roomMembershipIndex,
+                              ObjectMapper objectMapper,
+                              InboundFrameReader inboundFrameReader,
+                              MeterRegistry meterRegistry) {
         this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
         this.sessionRegistry = sessionRegistry;
+        this.userProfileCache = userProfileCache;
+        this.roomMembershipIndex = roomMembershipIndex;
+        this.objectMapper = objectMapper;
+        this.inboundFrameReader = inboundFrameReader;
+
+        Gauge.builder("chat.pubsub.room-channels", roomListeners, Map::size)
+                .description("이 노드가 구독 중인 방 채널 수")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void subscribeGlobalChannels() {
+        sessionRegistry.setRoomInterestListener(this);
+        this.globalListener = listenerContainer.receive(
+                        ChannelTopic.of(READ_EVENT_CHANNEL),
+                        ChannelTopic.of(UserProfileCache.INVALIDATION_CHANNEL),
+                        ChannelTopic.of(RoomMembershipIndex.MEMBERSHIP_CHANNEL))
+                .flatMap(this::handleGlobalMessage)
+                .doOnError(e -> log.warn("global channel subscription failed, resubscribing", e))
+                .retryWhen(RESUBSCRIBE)
+                .subscribe();
+    }
+
+    public static String roomChannel(Long roomId) {
+        return ROOM_CHANNEL_PREFIX + roomId;
+    }
+
+    public static String typingChannel(Long roomId) {
+        return ROOM_CHANNEL_PREFIX + roomId + TYPING_CHANNEL_SUFFIX;
     }
 
     public Mono<Long> publish(String channel, String message) {
         return stringRedisTemplate.convertAndSend(channel, message);
     }
 
-    public Mono<Void> handleMessage(String payload) {
+    public Mono<Long> publishToRoom(Long roomId, String message) {
+        return publish(roomChannel(roomId), message);
+    }
+
+    // 읽음 이벤트 발행 실패가 읽음 처리 자체를 실패시키지 않도록 오류는 로그만 남긴다
+    public Mono<Void> publishReadEvent(ChatReadEventDto event) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(event))
+                .flatMap(json -> publish(READ_EVENT_CHANNEL, json))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("read event publish failed userId={} roomId={}", event.getUserId(), event.getRoomId(), e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 방/입력 중 채널 구독을 끊는다 (drain 마지막 단계). 발행은 계속 가능하다.
+     * 전역 채널(프로필 무효화, 참여자 변경, 읽음 이벤트)은 drain 뒤에도 HTTP 요청이 캐시를 쓰므로 컨텍스트 종료 때 끊는다.
+     */
+    public void closeRoomListeners() {
+        closed = true;
+        roomListeners.keySet().forEach(this::onRoomIdle);
+    }
+
+    @PreDestroy
+    void closeGlobalListener() {
+        Disposable global = globalListener;
+        if (global != null) {
+            global.dispose();
+        }
+    }
+
+    /**
+     * 이 노드의 방 채널 구독이 Redis 에서 확인될 때까지 기다린다.
+     * 확인되었거나 구독 중인 채널이 없으면 true, 시간 안에 확인되지 않으면 false.
+     */
+    public Mono<Boolean> awaitRoomSubscribed(Long roomId) {
+        RoomChannel channel = roomListeners.get(roomId);
+        if (channel == null) {
+            return Mono.just(true);
+        }
+        return channel.subscribed()
+                .thenReturn(true)
+                .timeout(SUBSCRIBE_TIMEOUT)
+                .onErrorResume(e -> {
+                    log.warn("room channel subscription not confirmed roomId={}", roomId, e);
+                    return Mono.just(false);
+                });
+    }
+
+    @Override
+    public void onRoomActive(Long roomId) {
+        if (closed) {
+            return;
+        }
+        roomListeners.computeIfAbsent(roomId, this::openRoomChannel);
+    }
+
+    private RoomChannel openRoomChannel(Long roomId) {
+        Sinks.Empty<Void> subscribed = Sinks.empty();
+        Mono<Void> previousTeardown = roomTeardowns.getOrDefault(roomId, Mono.empty());
+        // receiveLater 는 SUBSCRIBE 가 확인된 뒤에 메시지 Flux 를 내보낸다.
+        // 채널에서 roomId 와 종류를 알 수 있으므로 페이로드를 파싱하지 않고 그대로 전달한다
+        Disposable listener = previousTeardown
+                .then(Mono.defer(() -> listenerContainer.receiveLater(
+                        ChannelTopic.of(roomChannel(roomId)), ChannelTopic.of(typingChannel(roomId)))))
+                // 메시지 Flux 구독이 끝난 뒤에 알린다 (merge 는 앞의 소스부터 구독한다).
+                // 그 전에 끊기면 컨테이너가 구독을 해제하지 못하거나 다음 SUBSCRIBE 보다 늦게 해제한다
+                .flatMapMany(messages -> messages.mergeWith(Mono.fromRunnable(subscribed::tryEmitEmpty)))
+                .doOnNext(message -> {
+                    if (message.getChannel().endsWith(TYPING_CHANNEL_SUFFIX)) {
+                        sessionRegistry.broadcastEphemeral(roomId, message.getMessage());
+                    } else {
+                        sessionRegistry.broadcast(roomId, message.getMessage());
+                    }
+                })
+                .doOnError(e -> log.warn("room channel subscription failed roomId={}, resubscribing", roomId, e))
+                .retryWhen(RESUBSCRIBE)
+                .subscribe();
+        return new RoomChannel(listener, subscribed.asMono());
+    }
+
+    @Override
+    public void onRoomIdle(Long roomId) {
+        RoomChannel channel = roomListeners.remove(roomId);
+        if (channel == null) {
+            return;
+        }
+        // SUBSCRIBE 확인 전에 끊으면 컨테이너가 해제할 구독을 알지 못하므로 확인(또는 시간 초과) 뒤에 끊는다.
+        // 구독을 끊으면 컨테이너가 해당 채널을 UNSUBSCRIBE 한다
+        Mono<Void> teardown = channel.subscribed()
+                .timeout(SUBSCRIBE_TIMEOUT)
+                .onErrorResume(e -> Mono.empty())
+                .then(Mono.fromRunnable(channel.listener()::dispose))
+                .then()
+                .cache();
+        roomTeardowns.put(roomId, teardown);
+        teardown.doFinally(signalType -> roomTeardowns.remove(roomId, teardown)).subscribe();
+    }
+
+    private Mono<Void> handleGlobalMessage(ReactiveSubscription.Message<String, String> message) {
+        String channel = message.getChannel();
+        if (READ_EVENT_CHANNEL.equals(channel)) {
+            return handleReadEvent(message.getMessage());
+        }
+        if (UserProfileCache.INVALIDATION_CHANNEL.equals(channel)) {
+            return userProfileCache.handleInvalidation(message.getMessage());
+        }
+        if (RoomMembershipIndex.MEMBERSHIP_CHANNEL.equals(channel)) {
+            return roomMembershipIndex.handleEvent(message.getMessage());
+        }
+        return Mono.empty();
+    }
+
+    private record RoomChannel(Disposable listener, Mono<Void> subscribed) {
+    }
+
+    private Mono<Void> handleReadEvent(String payload) {
         return Mono.fromRunnable(() -> {
-            try {
-                JsonNode node = objectMapper.readTree(payload);
-                Long roomId = node.path("roomId").isNumber() ? node.path("roomId").asLong() : null;
-                if (roomId != null) {
-                    sessionRegistry.broadcast(roomId, payload);
-                }
-            } catch (Exception e) {
-                // ignore malformed payload to avoid crashing listener
+            // 라우팅 필드(userId)만 읽고 본문은 그대로 전달한다 (잘못된 페이로드면 null)
+            Long userId = inboundFrameReader.readLongField(payload, "userId");
+            if (userId != null) {
+                sessionRegistry.sendToUser(userId, payload);
             }
         });
     }
@@ -0,0 +1,156 @@
+package com.ktb.community.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.ktb.community.chat.dto.RoomMembershipEventDto;
+import com.ktb.community.chat.repository.ChatParticipantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static reactor.core.scheduler.Schedulers.boundedElastic;
+
+/**
+ * 노드별 채팅방 참여자 인덱스: roomId -> 정렬된 userId 배열(long[]).
+ * 방을 처음 조회할 때 DB에서 한 번 읽고, 이후 참여/나가기는 chat:membership 이벤트로 반영한다.
+ * 이벤트를 놓쳐도 오래 남지 않도록, 이벤트 반영과 관계없이 DB에서 읽은 지 reload-minutes 가 지나면 버리고 다시 읽는다.
+ * 배열은 바뀔 때마다 새로 만들어 교체하므로(copy-on-write) 조회는 락 없이 이진 탐색만 한다.
+ */
+@Component
+public class RoomMembershipIndex {
+
+    public static final String MEMBERSHIP_CHANNEL = "chat:membership";
+
+    private static final Logger log = LoggerFactory.getLogger(RoomMembershipIndex.class);
+    private static final long[] EMPTY = new long[0];
+
+    private final ChatParticipantRepository chatParticipantRepository;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, long[]> members;
+    // 적용한 이벤트 수. DB 로딩 중 이벤트가 들어왔으면 로딩 결과가 낡았을 수 있으므로 캐시에 넣지 않는다
+    private final AtomicLong appliedEvents = new AtomicLong();
+
+    public RoomMembershipIndex(ChatParticipantRepository chatParticipantRepository,
+                               @Qualifier("chatPubSub") ReactiveStringRedisTemplate redisTemplate,
+                               ObjectMapper objectMapper,
+                               @Value("${chat.membership.max-rooms:100000}") long maxRooms,
+                               @Value("${chat.membership.reload-minutes:5}") long reloadMinutes) {
+        this.chatParticipantRepository = chatParticipantRepository;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.members = Caffeine.newBuilder()
+                .maximumSize(maxRooms)
+                // 조회/이벤트 반영은 만료 시각을 늦추지 않는다 (DB에서 읽은 시점 기준)
+                .expireAfter(Expiry.<Long, long[]>creating((roomId, userIds) -> Duration.ofMinutes(reloadMinutes)))
+                .build();
+    }
+
+    public Mono<Boolean> isMember(Long roomId, Long userId) {
+        if (roomId == null || userId == null) {
+            return Mono.just(false);
+        }
+        return members(roomId).map(userIds -> Arrays.binarySearch(userIds, userId) >= 0);
+    }
+
+    /**
+     * 채팅방 참여자 userId (오름차순). 반환된 배열은 수정하면 안 된다.
+     */
+    public Mono<long[]> members(Long roomId) {
+        long[] cached = members.getIfPresent(roomId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Mono.fromCallable(() -> {
+            long eventsBefore = appliedEvents.get();
+            long[] userIds = chatParticipantRepository.findUserIdsByChatRoomId(roomId).stream()
+                    .mapToLong(Long::longValue)
+                    .sorted()
+                    .toArray();
+            if (appliedEvents.get() == eventsBefore) {
+                members.asMap().putIfAbsent(roomId, userIds);
+            }
+            return userIds;
+        }).subscribeOn(boundedElastic());
+    }
+
+    // 참여/나가기가 커밋된 뒤 호출한다. 이 노드에는 바로 반영하고 다른 노드에는 이벤트로 알린다
+    public Mono<Void> publishJoin(Long roomId, Long userId) {
+        return publish(new RoomMembershipEventDto(RoomMembershipEventDto.JOIN, roomId, userId));
+    }
+
+    public Mono<Void> publishLeave(Long roomId, Long userId) {
+        return publish(new RoomMembershipEventDto(RoomMembershipEventDto.LEAVE, roomId, userId));
+    }
+
+    public Mono<Void> handleEvent(String payload) {
+        return Mono.fromRunnable(() -> {
+            try {
+                apply(objectMapper.readValue(payload, RoomMembershipEventDto.class));
+            } catch (Exception e) {
+                // ignore malformed payload to avoid crashing listener
+            }
+        });
+    }
+
+    private Mono<Void> publish(RoomMembershipEventDto event) {
+        apply(event);
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(event))
+                .flatMap(json -> redisTemplate.convertAndSend(MEMBERSHIP_CHANNEL, json))
+                .then()
+                .onErrorResume(e -> {
+                    // 다른 노드는 reload-minutes 가 지나 DB에서 다시 읽을 때 반영된다
+                    log.warn("membership event publish failed roomId={} userId={}", event.getRoomId(), event.getUserId(), e);
+                    return Mono.empty();
+                });
+    }
+
+    private void apply(RoomMembershipEventDto event) {
+        if (event.getRoomId() == null || event.getUserId() == null) {
+            return;
+        }
+        appliedEvents.incrementAndGet();
+        long userId = event.getUserId();
+        boolean join = RoomMembershipEventDto.JOIN.equals(event.getType());
+        // 로딩되지 않은 방은 건드리지 않는다 (처음 조회할 때 DB에서 읽는다)
+        members.asMap().computeIfPresent(event.getRoomId(), (roomId, userIds) ->
+                join ? insert(userIds, userId) : remove(userIds, userId));
+    }
+
+    private static long[] insert(long[] userIds, long userId) {
+        int index = Arrays.binarySearch(userIds, userId);
+        if (index >= 0) {
+            return userIds;
+        }
+        int insertAt = -index - 1;
+        long[] next = new long[userIds.length + 1];
+        System.arraycopy(userIds, 0, next, 0, insertAt);
+        next[insertAt] = userId;
+        System.arraycopy(userIds, insertAt, next, insertAt + 1, userIds.length - insertAt);
+        return next;
+    }
+
+    private static long[] remove(long[] userIds, long userId) {
+        int index = Arrays.binarySearch(userIds, userId);
+        if (index < 0) {
+            return userIds;
+        }
+        if (userIds.length == 1) {
+            return EMPTY;
+        }
+        long[] next = new long[userIds.length - 1];
+        System.arraycopy(userIds, 0, next, 0, index);
+        System.arraycopy(userIds, index + 1, next, index, userIds.length - index - 1);
+        return next;
+    }
+}
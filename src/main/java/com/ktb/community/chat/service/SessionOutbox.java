@@ -0,0 +1,275 @@
+package com.ktb.community.chat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 세션별 송신 대기열 (최대 capacity 프레임).
+ * 클라이언트가 느려 대기열이 차면 정책에 따라 가장 오래된 프레임을 버리거나(DROP_OLDEST),
+ * 새 프레임을 버리고 gap 표시를 보내거나(DROP_NEWEST), 세션을 끊는다(DISCONNECT).
+ * 입력 중 표시 같은 일시 프레임은 별도의 작은 대기열에 두고 일반 대기열이 비었을 때만 보낸다.
+ * 일시 프레임은 capacity 에 포함되지 않으므로 일반 프레임을 밀어내지 않고, 자기들끼리 넘치면 가장 오래된 것부터 버린다.
+ * 대기열의 버퍼는 이 객체가 소유하며, 전송/폐기/종료 시 해제된다.
+ */
+public final class SessionOutbox {
+
+    public enum OverflowPolicy {
+        DROP_OLDEST, DROP_NEWEST, DISCONNECT
+    }
+
+    private static final int EPHEMERAL_CAPACITY = 8;
+
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Metrics metrics;
+
+    // 아래 필드는 this 로 보호한다
+    private final ArrayDeque<ByteBuf> queue = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuf> ephemeral = new ArrayDeque<>();
+    private int droppedSinceMarker;
+    private boolean rejecting;
+    private boolean closed;
+
+    // drain 은 한 번에 한 스레드만 수행한다 (downstream 으로의 신호는 모두 drain 안에서만 보낸다)
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile FluxSink<ByteBuf> downstream;
+    private final Sinks.Empty<Void> overflowed = Sinks.empty();
+    private final Flux<ByteBuf> flux;
+
+    SessionOutbox(int capacity, OverflowPolicy policy, Metrics metrics) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.metrics = metrics;
+        this.flux = Flux.create(emitter -> {
+            this.downstream = emitter;
+            emitter.onRequest(n -> drain());
+            emitter.onDispose(this::close);
+            drain();
+        });
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    // 세션 send 한 곳에서만 구독한다
+    public Flux<ByteBuf> asFlux() {
+        return flux;
+    }
+
+    // DISCONNECT 정책으로 대기열이 넘치면 완료된다. 세션을 닫는 쪽에서 구독한다
+    public Mono<Void> onOverflowDisconnect() {
+        return overflowed.asMono();
+    }
+
+    /**
+     * 버퍼 소유권을 넘긴다. 대기열에 넣지 못하면 버퍼는 여기서 해제된다.
+     */
+    public boolean offer(ByteBuf buffer) {
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed || rejecting) {
+                buffer.release();
+                metrics.rejected.increment();
+                return false;
+            }
+            if (queue.size() >= capacity) {
+                switch (policy) {
+                    case DROP_OLDEST -> {
+                        ByteBuf oldest = queue.poll();
+                        addQueuedBytes(-oldest.readableBytes());
+                        oldest.release();
+                        metrics.dropped(policy);
+                    }
+                    case DROP_NEWEST -> {
+                        buffer.release();
+                        droppedSinceMarker++;
+                        metrics.dropped(policy);
+                        return false;
+                    }
+                    case DISCONNECT -> {
+                        buffer.release();
+                        rejecting = true;
+                        disconnect = true;
+                    }
+                }
+            }
+            if (!disconnect) {
+                // 버린 프레임이 있었다면 그 자리에 gap 표시를 끼워 클라이언트가 이력을 다시 받게 한다
+                enqueueGapMarkerIfDropped();
+                enqueue(buffer);
+            }
+        }
+        if (disconnect) {
+            metrics.disconnected.increment();
+            overflowed.tryEmitEmpty();
+            return false;
+        }
+        drain();
+        return true;
+    }
+
+    /**
+     * 우선순위가 낮은 일시 프레임의 버퍼 소유권을 넘긴다. 대기 중인 일시 프레임이 가득 차면 가장 오래된 것을 버린다.
+     */
+    public boolean offerEphemeral(ByteBuf buffer) {
+        synchronized (this) {
+            if (closed || rejecting) {
+                buffer.release();
+                metrics.rejected.increment();
+                return false;
+            }
+            if (ephemeral.size() >= EPHEMERAL_CAPACITY) {
+                ByteBuf oldest = ephemeral.poll();
+                addQueuedBytes(-oldest.readableBytes());
+                oldest.release();
+                metrics.ephemeralDropped.increment();
+            }
+            ephemeral.add(buffer);
+            addQueuedBytes(buffer.readableBytes());
+        }
+        drain();
+        return true;
+    }
+
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            FluxSink<ByteBuf> emitter = downstream;
+            if (emitter == null) {
+                // 구독 전에 닫힌 경우에도 쌓인 버퍼는 해제한다
+                synchronized (this) {
+                    if (closed) {
+                        releaseQueued();
+                    }
+                }
+            } else {
+                while (true) {
+                    ByteBuf next = null;
+                    boolean terminate = false;
+                    synchronized (this) {
+                        if (closed) {
+                            releaseQueued();
+                            terminate = true;
+                        } else if (emitter.requestedFromDownstream() > 0) {
+                            if (queue.isEmpty()) {
+                                enqueueGapMarkerIfDropped();
+                            }
+                            next = queue.poll();
+                            if (next == null) {
+                                // 일반 프레임을 다 보낸 뒤에만 일시 프레임을 보낸다
+                                next = ephemeral.poll();
+                            }
+                            if (next != null) {
+                                addQueuedBytes(-next.readableBytes());
+                            }
+                        }
+                    }
+                    if (terminate) {
+                        emitter.complete();
+                        break;
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    emitter.next(next);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void enqueueGapMarkerIfDropped() {
+        if (droppedSinceMarker > 0) {
+            enqueue(ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT,
+                    "{\"type\":\"gap\",\"dropped\":" + droppedSinceMarker + "}"));
+            droppedSinceMarker = 0;
+        }
+    }
+
+    private void enqueue(ByteBuf buffer) {
+        queue.add(buffer);
+        addQueuedBytes(buffer.readableBytes());
+    }
+
+    private void releaseQueued() {
+        ByteBuf buffer;
+        while ((buffer = queue.poll()) != null) {
+            addQueuedBytes(-buffer.readableBytes());
+            buffer.release();
+        }
+        while ((buffer = ephemeral.poll()) != null) {
+            addQueuedBytes(-buffer.readableBytes());
+            buffer.release();
+        }
+    }
+
+    private void addQueuedBytes(long delta) {
+        metrics.bufferedBytes.addAndGet(delta);
+    }
+
+    /**
+     * 노드 전체 송신 대기열 메트릭 (모든 세션이 공유).
+     */
+    public static final class Metrics {
+        private final AtomicLong bufferedBytes = new AtomicLong();
+        private final Map<OverflowPolicy, Counter> dropped = new EnumMap<>(OverflowPolicy.class);
+        private final Counter rejected;
+        private final Counter disconnected;
+        private final Counter ephemeralDropped;
+
+        public Metrics(MeterRegistry meterRegistry) {
+            Gauge.builder("chat.session.outbound.buffered.bytes", bufferedBytes, AtomicLong::get)
+                    .description("세션 송신 대기열에 쌓인 바이트 수 (노드 전체)")
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            for (OverflowPolicy policy : OverflowPolicy.values()) {
+                dropped.put(policy, Counter.builder("chat.session.outbound.dropped")
+                        .description("대기열이 넘쳐 버린 프레임 수")
+                        .tag("policy", policy.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+            this.rejected = Counter.builder("chat.session.outbound.rejected")
+                    .description("종료 중이거나 끊긴 세션으로 보내려다 버린 프레임 수")
+                    .register(meterRegistry);
+            this.disconnected = Counter.builder("chat.session.outbound.disconnects")
+                    .description("대기열이 넘쳐 끊은 세션 수")
+                    .register(meterRegistry);
+            this.ephemeralDropped = Counter.builder("chat.session.outbound.ephemeral.dropped")
+                    .description("보내기 전에 밀려 버린 일시 프레임(입력 중 표시) 수")
+                    .register(meterRegistry);
+        }
+
+        void dropped(OverflowPolicy policy) {
+            dropped.get(policy).increment();
+        }
+
+        public long getBufferedBytes() {
+            return bufferedBytes.get();
+        }
+    }
+}
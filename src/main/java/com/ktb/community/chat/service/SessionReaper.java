@@ -0,0 +1,122 @@
+package com.ktb.community.chat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 죽은 세션 정리.
+ * 핸들러는 ping-interval 마다 ping 을 보내고 idle-timeout 동안 아무 프레임(pong 포함)도 받지 못하면 세션을 닫는다.
+ * 주기적인 sweep 은 그 외에 남은 것(소켓은 닫혔는데 등록이 남은 세션, 인덱스에 남은 제거된 세션)을 정리한다.
+ * 정리된 세션 수는 chat.session.reaped{reason} 로 남는다.
+ */
+@Component
+public class SessionReaper {
+
+    public enum Reason {
+        // 하트비트 응답 없음
+        IDLE,
+        // 송신 대기열 초과 (DISCONNECT 정책)
+        SLOW_CONSUMER,
+        // 연결은 닫혔는데 레지스트리에 남아 있던 세션
+        STALE,
+        // 제거된 세션이 방/유저 인덱스에 남아 있던 항목
+        ORPHAN,
+        // drain 으로 다른 노드에 재연결하도록 닫은 세션
+        DRAIN
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(SessionReaper.class);
+
+    private final SessionRegistry sessionRegistry;
+    private final Duration pingInterval;
+    private final long idleTimeoutNanos;
+    private final Duration sweepInterval;
+    private final Map<Reason, Counter> reaped = new EnumMap<>(Reason.class);
+    private Disposable sweeper;
+
+    public SessionReaper(SessionRegistry sessionRegistry,
+                         MeterRegistry meterRegistry,
+                         @Value("${chat.session.ping-interval-seconds:20}") long pingIntervalSeconds,
+                         @Value("${chat.session.idle-timeout-seconds:60}") long idleTimeoutSeconds,
+                         @Value("${chat.session.sweep-interval-seconds:30}") long sweepIntervalSeconds) {
+        this.sessionRegistry = sessionRegistry;
+        this.pingInterval = Duration.ofSeconds(pingIntervalSeconds);
+        this.idleTimeoutNanos = Duration.ofSeconds(idleTimeoutSeconds).toNanos();
+        this.sweepInterval = Duration.ofSeconds(sweepIntervalSeconds);
+        for (Reason reason : Reason.values()) {
+            reaped.put(reason, Counter.builder("chat.session.reaped")
+                    .description("정리한 세션 수")
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        this.sweeper = Flux.interval(sweepInterval)
+                .subscribe(tick -> {
+                    try {
+                        sweep();
+                    } catch (Exception e) {
+                        log.warn("session sweep failed", e);
+                    }
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    public Duration getPingInterval() {
+        return pingInterval;
+    }
+
+    public boolean isIdle(SessionRegistry.SessionConnection connection) {
+        return System.nanoTime() - connection.getLastSeenNanos() > idleTimeoutNanos;
+    }
+
+    /**
+     * 레지스트리에서 빼고 연결을 닫는다. 같은 세션을 여러 번 호출해도 한 번만 집계된다.
+     */
+    public void reap(SessionRegistry.SessionConnection connection, Reason reason) {
+        if (sessionRegistry.removeSession(connection.getSessionId())) {
+            reaped.get(reason).increment();
+            log.debug("session reaped sessionId={} userId={} reason={}", connection.getSessionId(), connection.getUserId(), reason);
+        }
+        connection.getLiveSession().close(reason)
+                .onErrorResume(e -> Mono.empty())
+                .subscribe();
+    }
+
+    void sweep() {
+        for (SessionRegistry.SessionConnection connection : sessionRegistry.getConnections()) {
+            if (!connection.getLiveSession().isOpen()) {
+                reap(connection, Reason.STALE);
+            } else if (isIdle(connection)) {
+                // 핸들러의 하트비트가 닫지 못한 경우의 안전망
+                reap(connection, Reason.IDLE);
+            }
+        }
+        int orphans = sessionRegistry.purgeOrphans();
+        if (orphans > 0) {
+            reaped.get(Reason.ORPHAN).increment(orphans);
+            log.warn("purged orphan session entries count={}", orphans);
+        }
+    }
+}
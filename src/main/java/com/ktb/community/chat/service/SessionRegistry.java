@@ -1,106 +1,607 @@
 package com.ktb.community.chat.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import reactor.core.publisher.Sinks;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * WebSocket 세션별 구독 방 목록과 outbound sink를 관리한다.
- * 인메모리라 단일 인스턴스/스티키 세션 가정.
+ * 방 구독은 노드 단위로 모아 RoomInterestListener 로 알리며, 노드 간 메시지 전달은 방별 Redis 채널이 맡는다.
+ * 구독자가 parallel-threshold 이상인 방은 브로드캐스트를 세션 stripe 별로 나눠 fan-out 스케줄러에서 보낸다.
  */
 @Component
 public class SessionRegistry {
 
     public static class SessionConnection {
         private final String sessionId;
+        private final Long userId;
         private final Set<Long> roomIds;
-        private final Sinks.Many<String> sink;
+        private final SessionOutbox outbox;
+        // 병렬 fan-out 시 이 세션을 맡는 워커. 한 세션은 항상 같은 워커가 보내므로 순서가 유지된다
+        private final int stripe;
+        private final LiveSession liveSession;
+        // 클라이언트에게서 마지막으로 프레임(pong 포함)을 받은 시각 (System.nanoTime)
+        private volatile long lastSeenNanos = System.nanoTime();
+        private volatile boolean removed;
+        // 재전송(holdLive) 중인 방의 실시간 프레임은 방별로 모았다가 그 방 재전송 프레임 뒤에 보낸다.
+        // 다른 방 프레임은 잡지 않는다 (held 는 this 로 보호, heldRooms 는 잡아 둔 방이 없을 때 락을 건너뛰는 용도)
+        private final Map<Long, RoomHold> held = new HashMap<>();
+        private volatile int heldRooms;
 
-        SessionConnection(String sessionId, Set<Long> roomIds, Sinks.Many<String> sink) {
+        SessionConnection(String sessionId, Long userId, Set<Long> roomIds, SessionOutbox outbox, int stripe,
+                          LiveSession liveSession) {
             this.sessionId = sessionId;
+            this.userId = userId;
             this.roomIds = roomIds;
-            this.sink = sink;
+            this.outbox = outbox;
+            this.stripe = stripe;
+            this.liveSession = liveSession;
         }
 
         public String getSessionId() {
             return sessionId;
         }
 
+        public Long getUserId() {
+            return userId;
+        }
+
         public Set<Long> getRoomIds() {
             return roomIds;
         }
 
-        public Sinks.Many<String> getSink() {
-            return sink;
+        public SessionOutbox getOutbox() {
+            return outbox;
+        }
+
+        public LiveSession getLiveSession() {
+            return liveSession;
+        }
+
+        public void touch() {
+            lastSeenNanos = System.nanoTime();
+        }
+
+        public long getLastSeenNanos() {
+            return lastSeenNanos;
+        }
+
+        /**
+         * 공유 프레임의 참조 하나를 이 세션 대기열에 넣는다. 넣지 못하면(세션 종료, 대기열 초과) 그 참조는 바로 해제된다.
+         */
+        public boolean send(OutboundFrame frame) {
+            return outbox.offer(frame.retainedDuplicate());
+        }
+
+        /**
+         * 방 브로드캐스트 프레임. 그 방을 재전송 중이면 재전송이 끝날 때까지 모아 둔다.
+         */
+        public boolean send(Long roomId, OutboundFrame frame) {
+            if (heldRooms > 0) {
+                synchronized (this) {
+                    RoomHold hold = held.get(roomId);
+                    if (hold != null) {
+                        return hold.add(frame.retainedDuplicate(), outbox.getCapacity());
+                    }
+                    // 방금 재전송이 끝났을 수 있다: 모아 둔 프레임 뒤에 이어지도록 락 안에서 넣는다
+                    return outbox.offer(frame.retainedDuplicate());
+                }
+            }
+            return outbox.offer(frame.retainedDuplicate());
+        }
+
+        // 재전송 중인 방이면 보내지 않는다 (다음 일시 프레임이 곧 다시 온다)
+        public boolean sendEphemeral(Long roomId, OutboundFrame frame) {
+            if (heldRooms > 0) {
+                synchronized (this) {
+                    if (held.containsKey(roomId)) {
+                        return false;
+                    }
+                }
+            }
+            return outbox.offerEphemeral(frame.retainedDuplicate());
+        }
+
+        public boolean send(String payload) {
+            OutboundFrame frame = OutboundFrame.of(payload);
+            try {
+                return send(frame);
+            } finally {
+                frame.release();
+            }
+        }
+
+        /**
+         * 반환한 LiveHold 를 놓을 때까지 이 세션으로 가는 roomId 방의 실시간 프레임을 보내지 않고 모아 둔다.
+         * 다른 방 프레임은 그대로 보낸다. 같은 방을 동시에 재전송하면 마지막 LiveHold 를 놓을 때 한꺼번에 보낸다.
+         */
+        public LiveHold holdLive(Long roomId) {
+            synchronized (this) {
+                RoomHold hold = held.get(roomId);
+                if (hold == null) {
+                    held.put(roomId, new RoomHold());
+                    heldRooms = held.size();
+                } else {
+                    hold.depth++;
+                }
+            }
+            return new LiveHold(this, roomId);
+        }
+
+        private boolean release(Long roomId, String replayPayload) {
+            synchronized (this) {
+                if (replayPayload != null) {
+                    OutboundFrame replay = OutboundFrame.of(replayPayload);
+                    try {
+                        outbox.offer(replay.retainedDuplicate());
+                    } finally {
+                        replay.release();
+                    }
+                }
+                RoomHold hold = held.get(roomId);
+                boolean complete = !hold.overflowed;
+                if (--hold.depth == 0) {
+                    held.remove(roomId);
+                    heldRooms = held.size();
+                    ByteBuf buffer;
+                    while ((buffer = hold.frames.poll()) != null) {
+                        outbox.offer(buffer);
+                    }
+                }
+                return complete;
+            }
         }
     }
 
+    // 재전송 중인 방 하나의 잡아 둔 프레임 (SessionConnection 락 안에서만 쓴다)
+    private static final class RoomHold {
+        private final ArrayDeque<ByteBuf> frames = new ArrayDeque<>();
+        private int depth = 1;
+        private boolean overflowed;
+
+        // 대기열 크기를 넘으면 새 프레임을 버리고, 재전송이 끝날 때 다시 불러오라고 알린다
+        private boolean add(ByteBuf buffer, int capacity) {
+            if (frames.size() >= capacity) {
+                buffer.release();
+                overflowed = true;
+                return false;
+            }
+            frames.add(buffer);
+            return true;
+        }
+    }
+
+    /**
+     * 재전송 동안 실시간 프레임을 잡아 두는 핸들. 한 번만 놓을 수 있고 두 번째부터는 무시된다.
+     */
+    public static final class LiveHold {
+        private final SessionConnection connection;
+        private final Long roomId;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private LiveHold(SessionConnection connection, Long roomId) {
+            this.connection = connection;
+            this.roomId = roomId;
+        }
+
+        /**
+         * 재전송 프레임(없으면 null)을 먼저 넣고 모아 둔 그 방의 실시간 프레임을 이어서 보낸다.
+         * @return 잡아 두는 동안 버린 실시간 프레임이 없으면 true
+         */
+        public boolean release(String replayPayload) {
+            return !released.compareAndSet(false, true) || connection.release(roomId, replayPayload);
+        }
+    }
+
+    /**
+     * 방 구독자 스냅샷 (불변). parallel 은 한 번 켜지면 방이 idle 이 될 때까지 유지한다.
+     * 인라인과 병렬 전송을 오가면 먼저 워커에 맡긴 프레임을 나중 인라인 프레임이 앞지를 수 있기 때문이다.
+     */
+    private static final class RoomSubscribers {
+        private final SessionConnection[] connections;
+        private final boolean parallel;
+        // stripe 별로 나눈 구독자. 처음 병렬 전송할 때 계산하며, 스냅샷이 불변이라 경합해도 결과가 같다
+        private volatile SessionConnection[][] byStripe;
+
+        private RoomSubscribers(SessionConnection[] connections, boolean parallel) {
+            this.connections = connections;
+            this.parallel = parallel;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(SessionRegistry.class);
+
     private final Map<String, SessionConnection> sessions = new ConcurrentHashMap<>();
-    private final Map<Long, Set<String>> roomSubscriptions = new ConcurrentHashMap<>();
+    // roomId/userId -> 세션 참조 배열. 배열은 바뀔 때마다 새로 만들어 교체하므로(copy-on-write)
+    // 브로드캐스트는 락이나 세션별 맵 조회 없이 배열만 순회한다
+    private final Map<Long, RoomSubscribers> roomSubscriptions = new ConcurrentHashMap<>();
+    private final Map<Long, SessionConnection[]> userSessions = new ConcurrentHashMap<>();
+    private volatile RoomInterestListener roomInterestListener = RoomInterestListener.NONE;
+    private volatile SubscriptionListener subscriptionListener = SubscriptionListener.NONE;
+    private final int outboundCapacity;
+    private final SessionOutbox.OverflowPolicy overflowPolicy;
+    private final SessionOutbox.Metrics outboxMetrics;
+    private final int parallelThreshold;
+    private final Scheduler fanoutScheduler;
+    // stripe 마다 워커 하나 (워커 안의 작업은 제출 순서대로 실행된다)
+    private final Scheduler.Worker[] fanoutWorkers;
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    private final Counter parallelBroadcasts;
 
-    public SessionConnection registerSession(String sessionId) {
+    public SessionRegistry(MeterRegistry meterRegistry,
+                           @Value("${chat.session.outbound-capacity:256}") int outboundCapacity,
+                           @Value("${chat.session.overflow-policy:DROP_OLDEST}") SessionOutbox.OverflowPolicy overflowPolicy,
+                           @Value("${chat.fanout.parallel-threshold:1000}") int parallelThreshold,
+                           @Value("${chat.fanout.parallelism:0}") int parallelism) {
+        this.outboundCapacity = outboundCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.outboxMetrics = new SessionOutbox.Metrics(meterRegistry);
+        this.parallelThreshold = parallelThreshold;
+        int stripes = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.fanoutScheduler = Schedulers.newParallel("chat-fanout", stripes, true);
+        this.fanoutWorkers = new Scheduler.Worker[stripes];
+        for (int i = 0; i < stripes; i++) {
+            fanoutWorkers[i] = fanoutScheduler.createWorker();
+        }
+        this.parallelBroadcasts = Counter.builder("chat.fanout.parallel.broadcasts")
+                .description("fan-out 스케줄러로 나눠 보낸 브로드캐스트 수")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanoutScheduler.dispose();
+    }
+
+    /**
+     * 레지스트리에 등록된 세션의 실제 연결. 정리 작업(SessionReaper)이 연결 상태를 확인하고 닫을 때 쓴다.
+     */
+    public interface LiveSession {
+        LiveSession DETACHED = new LiveSession() {
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public Mono<Void> close(SessionReaper.Reason reason) {
+                return Mono.empty();
+            }
+        };
+
+        boolean isOpen();
+
+        Mono<Void> close(SessionReaper.Reason reason);
+    }
+
+    /**
+     * 이 노드에서 어떤 방을 처음 구독한 세션이 생기거나(active), 마지막 세션이 빠질 때(idle) 호출된다.
+     * 같은 방에 대한 호출은 순서가 보장되며, 호출 중에는 블로킹하면 안 된다.
+     */
+    public interface RoomInterestListener {
+        RoomInterestListener NONE = new RoomInterestListener() {
+            @Override
+            public void onRoomActive(Long roomId) {
+            }
+
+            @Override
+            public void onRoomIdle(Long roomId) {
+            }
+        };
+
+        void onRoomActive(Long roomId);
+
+        void onRoomIdle(Long roomId);
+    }
+
+    /**
+     * 방의 구독 세션이 바뀔 때마다(구독, 해제, 세션 종료) 호출된다. 어떤 세션이 바뀌었는지는 넘기지 않으므로
+     * 받는 쪽은 필요할 때 getLocalUserIds 로 현재 상태를 다시 읽는다. 호출 중에는 블로킹하면 안 된다.
+     */
+    public interface SubscriptionListener {
+        SubscriptionListener NONE = roomId -> {
+        };
+
+        void onSubscriptionChanged(Long roomId);
+    }
+
+    public SessionConnection registerSession(String sessionId, Long userId) {
+        return registerSession(sessionId, userId, LiveSession.DETACHED);
+    }
+
+    public SessionConnection registerSession(String sessionId, Long userId, LiveSession liveSession) {
         return sessions.computeIfAbsent(sessionId, id -> {
             Set<Long> rooms = Collections.newSetFromMap(new ConcurrentHashMap<>());
-            // multicase sink: 여러 subscriber(세션 send) 가능, backpressure buffer
-            Sinks.Many<String> sink = Sinks.many().multicast().onBackpressureBuffer();
-            return new SessionConnection(id, rooms, sink);
+            // 크기 제한이 있는 송신 대기열. 넘치면 overflowPolicy 를 따른다
+            SessionOutbox outbox = new SessionOutbox(outboundCapacity, overflowPolicy, outboxMetrics);
+            int stripe = Math.floorMod(nextStripe.getAndIncrement(), fanoutWorkers.length);
+            SessionConnection connection = new SessionConnection(id, userId, rooms, outbox, stripe, liveSession);
+            if (userId != null) {
+                userSessions.compute(userId, (key, connections) -> append(connections, connection));
+            }
+            return connection;
         });
     }
 
-    public void removeSession(String sessionId) {
+    /**
+     * @return 이번 호출로 제거했으면 true (이미 제거된 세션이면 false)
+     */
+    public boolean removeSession(String sessionId) {
         SessionConnection connection = sessions.remove(sessionId);
         if (connection == null) {
-            return;
+            return false;
         }
+        connection.removed = true;
         // 구독 해제
-        connection.getRoomIds().forEach(roomId -> {
-            Set<String> sessionIds = roomSubscriptions.get(roomId);
-            if (sessionIds != null) {
-                sessionIds.remove(sessionId);
-                if (sessionIds.isEmpty()) {
-                    roomSubscriptions.remove(roomId);
+        connection.getRoomIds().forEach(roomId -> leaveRoom(connection, roomId));
+        if (connection.getUserId() != null) {
+            userSessions.computeIfPresent(connection.getUserId(), (userId, connections) -> without(connections, connection));
+        }
+        connection.getOutbox().close();
+        return true;
+    }
+
+    // 등록된 세션 (약한 일관성 뷰)
+    public Collection<SessionConnection> getConnections() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    /**
+     * 이미 제거된 세션이 방/유저 인덱스에 남아 있으면 뺀다 (정상이라면 항상 0).
+     * @return 뺀 항목 수
+     */
+    public int purgeOrphans() {
+        int purged = 0;
+        for (Map.Entry<Long, RoomSubscribers> entry : roomSubscriptions.entrySet()) {
+            for (SessionConnection connection : entry.getValue().connections) {
+                if (connection.removed) {
+                    leaveRoom(connection, entry.getKey());
+                    purged++;
                 }
             }
-        });
-        connection.getSink().tryEmitComplete();
+        }
+        for (Map.Entry<Long, SessionConnection[]> entry : userSessions.entrySet()) {
+            for (SessionConnection connection : entry.getValue()) {
+                if (connection.removed) {
+                    userSessions.computeIfPresent(entry.getKey(), (userId, connections) -> without(connections, connection));
+                    purged++;
+                }
+            }
+        }
+        return purged;
     }
 
     public void subscribe(String sessionId, Long roomId) {
-        SessionConnection connection = registerSession(sessionId);
+        SessionConnection connection = sessions.get(sessionId);
+        if (connection == null) {
+            return;
+        }
         connection.getRoomIds().add(roomId);
-        roomSubscriptions
-                .computeIfAbsent(roomId, id -> Collections.newSetFromMap(new ConcurrentHashMap<>()))
-                .add(sessionId);
+        // compute 로 같은 방의 첫 구독/마지막 해제 알림이 순서대로 일어나도록 한다
+        roomSubscriptions.compute(roomId, (id, subscribers) -> {
+            if (subscribers == null) {
+                roomInterestListener.onRoomActive(id);
+                return new RoomSubscribers(append(null, connection), parallelThreshold <= 1);
+            }
+            SessionConnection[] next = append(subscribers.connections, connection);
+            if (next == subscribers.connections) {
+                return subscribers;
+            }
+            return new RoomSubscribers(next, subscribers.parallel || next.length >= parallelThreshold);
+        });
+        // 그 사이 세션이 종료됐다면 방금 추가한 구독을 되돌린다
+        if (!sessions.containsKey(sessionId)) {
+            leaveRoom(connection, roomId);
+            return;
+        }
+        subscriptionListener.onSubscriptionChanged(roomId);
     }
 
     public void unsubscribe(String sessionId, Long roomId) {
         SessionConnection connection = sessions.get(sessionId);
-        if (connection != null) {
-            connection.getRoomIds().remove(roomId);
+        if (connection == null) {
+            return;
+        }
+        connection.getRoomIds().remove(roomId);
+        leaveRoom(connection, roomId);
+    }
+
+    private void leaveRoom(SessionConnection connection, Long roomId) {
+        roomSubscriptions.computeIfPresent(roomId, (id, subscribers) -> {
+            SessionConnection[] remaining = without(subscribers.connections, connection);
+            if (remaining == null) {
+                roomInterestListener.onRoomIdle(id);
+                return null;
+            }
+            return remaining == subscribers.connections ? subscribers : new RoomSubscribers(remaining, subscribers.parallel);
+        });
+        subscriptionListener.onSubscriptionChanged(roomId);
+    }
+
+    // 같은 세션이 이미 있으면 그대로 반환
+    private static SessionConnection[] append(SessionConnection[] connections, SessionConnection connection) {
+        if (connections == null) {
+            return new SessionConnection[]{connection};
         }
-        Set<String> sessionIds = roomSubscriptions.get(roomId);
-        if (sessionIds != null) {
-            sessionIds.remove(sessionId);
-            if (sessionIds.isEmpty()) {
-                roomSubscriptions.remove(roomId);
+        for (SessionConnection existing : connections) {
+            if (existing == connection) {
+                return connections;
             }
         }
+        SessionConnection[] next = Arrays.copyOf(connections, connections.length + 1);
+        next[connections.length] = connection;
+        return next;
     }
 
+    // 마지막 세션이 빠지면 null (맵에서 제거)
+    private static SessionConnection[] without(SessionConnection[] connections, SessionConnection connection) {
+        int index = -1;
+        for (int i = 0; i < connections.length; i++) {
+            if (connections[i] == connection) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return connections;
+        }
+        if (connections.length == 1) {
+            return null;
+        }
+        SessionConnection[] next = new SessionConnection[connections.length - 1];
+        System.arraycopy(connections, 0, next, 0, index);
+        System.arraycopy(connections, index + 1, next, index, connections.length - index - 1);
+        return next;
+    }
+
+    public void setRoomInterestListener(RoomInterestListener roomInterestListener) {
+        this.roomInterestListener = roomInterestListener;
+    }
+
+    public void setSubscriptionListener(SubscriptionListener subscriptionListener) {
+        this.subscriptionListener = subscriptionListener;
+    }
+
+    // 이 노드에서 방을 구독 중인 유저 (같은 유저의 여러 세션은 하나로 센다)
+    public Set<Long> getLocalUserIds(Long roomId) {
+        RoomSubscribers subscribers = roomSubscriptions.get(roomId);
+        if (subscribers == null) {
+            return Set.of();
+        }
+        Set<Long> userIds = new HashSet<>();
+        for (SessionConnection connection : subscribers.connections) {
+            if (connection.getUserId() != null && !connection.removed) {
+                userIds.add(connection.getUserId());
+            }
+        }
+        return userIds;
+    }
+
+    /**
+     * 방 구독자에게 전송한다. 작은 방은 호출 스레드에서 바로 보내고, 큰 방은 stripe 별 워커에 나눠 맡긴 뒤 바로 반환하므로
+     * Redis 리스너 스레드가 큰 방 하나 때문에 다른 방 전달을 미루지 않는다.
+     */
     public void broadcast(Long roomId, String payload) {
-        Set<String> sessionIds = roomSubscriptions.get(roomId);
-        if (sessionIds == null || sessionIds.isEmpty()) {
+        broadcast(roomId, payload, false);
+    }
+
+    /**
+     * broadcast 와 같은 경로로 보내되, 세션 대기열에서 일반 프레임보다 늦게 보내고 밀리면 먼저 버린다 (입력 중 표시 등).
+     */
+    public void broadcastEphemeral(Long roomId, String payload) {
+        broadcast(roomId, payload, true);
+    }
+
+    private void broadcast(Long roomId, String payload, boolean ephemeral) {
+        RoomSubscribers subscribers = roomSubscriptions.get(roomId);
+        if (subscribers == null) {
+            return;
+        }
+        if (!subscribers.parallel) {
+            sendAll(subscribers.connections, roomId, payload, ephemeral);
             return;
         }
-        sessionIds.forEach(sessionId -> {
-            SessionConnection connection = sessions.get(sessionId);
-            if (connection != null) {
-                connection.getSink().tryEmitNext(payload);
+        SessionConnection[][] byStripe = subscribers.byStripe;
+        if (byStripe == null) {
+            byStripe = partitionByStripe(subscribers.connections);
+            subscribers.byStripe = byStripe;
+        }
+        parallelBroadcasts.increment();
+        OutboundFrame frame = OutboundFrame.of(payload);
+        try {
+            for (int stripe = 0; stripe < byStripe.length; stripe++) {
+                SessionConnection[] chunk = byStripe[stripe];
+                if (chunk.length == 0) {
+                    continue;
+                }
+                // 워커마다 프레임 참조를 하나씩 가지고, 전송을 마치면 해제한다
+                frame.retain();
+                try {
+                    fanoutWorkers[stripe].schedule(() -> {
+                        try {
+                            for (SessionConnection connection : chunk) {
+                                deliver(connection, roomId, frame, ephemeral);
+                            }
+                        } finally {
+                            frame.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // 종료 중
+                    frame.release();
+                    log.debug("fan-out rejected roomId={}", roomId);
+                }
             }
-        });
+        } finally {
+            frame.release();
+        }
+    }
+
+    private SessionConnection[][] partitionByStripe(SessionConnection[] connections) {
+        int[] counts = new int[fanoutWorkers.length];
+        for (SessionConnection connection : connections) {
+            counts[connection.stripe]++;
+        }
+        SessionConnection[][] byStripe = new SessionConnection[fanoutWorkers.length][];
+        for (int stripe = 0; stripe < byStripe.length; stripe++) {
+            byStripe[stripe] = new SessionConnection[counts[stripe]];
+            counts[stripe] = 0;
+        }
+        for (SessionConnection connection : connections) {
+            byStripe[connection.stripe][counts[connection.stripe]++] = connection;
+        }
+        return byStripe;
+    }
+
+    // 특정 유저의 이 노드에 연결된 모든 세션에 전송
+    public void sendToUser(Long userId, String payload) {
+        sendAll(userSessions.get(userId), null, payload, false);
+    }
+
+    // roomId 가 null 이면 방 브로드캐스트가 아니다 (재전송 중이어도 잡지 않는다)
+    private static void sendAll(SessionConnection[] connections, Long roomId, String payload, boolean ephemeral) {
+        if (connections == null) {
+            return;
+        }
+        // 페이로드는 한 번만 인코딩하고 세션마다 참조만 늘린다
+        OutboundFrame frame = OutboundFrame.of(payload);
+        try {
+            for (SessionConnection connection : connections) {
+                deliver(connection, roomId, frame, ephemeral);
+            }
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static void deliver(SessionConnection connection, Long roomId, OutboundFrame frame, boolean ephemeral) {
+        if (roomId == null) {
+            connection.send(frame);
+        } else if (ephemeral) {
+            connection.sendEphemeral(roomId, frame);
+        } else {
+            connection.send(roomId, frame);
+        }
     }
 }
@@ -0,0 +1,166 @@
+package com.ktb.community.chat.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake 방식의 64비트 ID 발급기.
+ * [41비트 타임스탬프(ms) | 10비트 노드 ID | 12비트 시퀀스] 로 구성되어
+ * 노드 안에서는 단조 증가하고, 노드 ID가 다르면 서로 겹치지 않는다.
+ * 노드 ID는 Redis 키(SET NX + TTL)로 임대하고 주기적으로 갱신한다.
+ * 갱신이 계속 실패해 임대 기한이 지나면 다른 노드가 같은 번호를 가져갈 수 있으므로 발급을 멈춘다.
+ */
+@Component
+public class SnowflakeIdGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SnowflakeIdGenerator.class);
+
+    // 2025-01-01T00:00:00Z
+    private static final long EPOCH = 1735689600000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int NODE_SHIFT = SEQUENCE_BITS;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + NODE_BITS;
+
+    private static final String NODE_KEY_PREFIX = "chat:id:node:";
+    // 내가 잡고 있는 임대일 때만 TTL 을 연장한다
+    private static final RedisScript<Long> RENEW_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Duration leaseTtl;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // 마지막으로 발급한 (타임스탬프 << SEQUENCE_BITS | 시퀀스)
+    private final AtomicLong lastState = new AtomicLong();
+    private volatile int nodeId = -1;
+    // 임대 만료 시각(System.nanoTime 기준). 요청을 보내기 전 시각에 TTL 을 더하므로 Redis 쪽 만료보다 늦지 않다
+    private volatile long leaseDeadline;
+    private Disposable renewal;
+
+    public SnowflakeIdGenerator(@Qualifier("chatPubSub") ReactiveStringRedisTemplate redisTemplate,
+                                @Value("${chat.id.node-lease-ttl-seconds:30}") long leaseTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.leaseTtl = Duration.ofSeconds(leaseTtlSeconds);
+    }
+
+    @PostConstruct
+    void start() {
+        acquireNodeId().block(Duration.ofSeconds(10));
+        log.info("snowflake node id leased nodeId={} instanceId={}", nodeId, instanceId);
+        this.renewal = Flux.interval(leaseTtl.dividedBy(3))
+                .concatMap(tick -> renew().onErrorResume(e -> {
+                    log.warn("snowflake node lease renewal failed nodeId={}", nodeId, e);
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (renewal != null) {
+            renewal.dispose();
+        }
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(nodeKey(nodeId)), List.of(instanceId))
+                .onErrorResume(e -> Flux.empty())
+                .blockLast(Duration.ofSeconds(2));
+    }
+
+    public long nextId() {
+        int node = nodeId;
+        if (node < 0) {
+            throw new IllegalStateException("snowflake node id is not leased");
+        }
+        if (System.nanoTime() - leaseDeadline > 0) {
+            throw new IllegalStateException("snowflake node lease expired nodeId=" + node);
+        }
+        long next;
+        while (true) {
+            long prev = lastState.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            // 시간이 흘렀으면 시퀀스를 0으로, 같은 ms(또는 시계 역행)면 +1.
+            // 시퀀스가 넘치면 타임스탬프 자리로 올림되어 다음 ms 를 미리 쓰므로 단조성이 유지된다.
+            next = now > (prev >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : prev + 1;
+            if (lastState.compareAndSet(prev, next)) {
+                break;
+            }
+        }
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+        return (timestamp << TIMESTAMP_SHIFT) | ((long) node << NODE_SHIFT) | sequence;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    // 비어 있는 번호를 임대하고, 성공하면 노드 ID와 임대 기한을 함께 바꾼다
+    private Mono<Integer> acquireNodeId() {
+        // 노드들이 같은 번호부터 경쟁하지 않도록 임의 위치에서 순회를 시작한다
+        int start = ThreadLocalRandom.current().nextInt(MAX_NODE_ID + 1);
+        return Flux.range(0, MAX_NODE_ID + 1)
+                .map(offset -> (start + offset) & MAX_NODE_ID)
+                .concatMap(candidate -> {
+                    long requestedAt = System.nanoTime();
+                    return redisTemplate.opsForValue()
+                            .setIfAbsent(nodeKey(candidate), instanceId, leaseTtl)
+                            .filter(Boolean::booleanValue)
+                            .map(acquired -> {
+                                this.nodeId = candidate;
+                                this.leaseDeadline = requestedAt + leaseTtl.toNanos();
+                                return candidate;
+                            });
+                }, 1)
+                .next()
+                .switchIfEmpty(Mono.error(new IllegalStateException("no free snowflake node id")));
+    }
+
+    Mono<Void> renew() {
+        int current = nodeId;
+        long requestedAt = System.nanoTime();
+        return redisTemplate.execute(RENEW_SCRIPT, List.of(nodeKey(current)),
+                        List.of(instanceId, String.valueOf(leaseTtl.toMillis())))
+                .next()
+                .flatMap(renewed -> {
+                    if (renewed != null && renewed == 1L) {
+                        this.leaseDeadline = requestedAt + leaseTtl.toNanos();
+                        return Mono.empty();
+                    }
+                    // 임대를 잃었다면(만료 후 다른 노드가 선점) 다른 번호를 새로 임대한다
+                    log.warn("snowflake node lease lost nodeId={}, re-acquiring", current);
+                    return acquireNodeId().then();
+                });
+    }
+
+    private static String nodeKey(int nodeId) {
+        return NODE_KEY_PREFIX + nodeId;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ktb.community.chat.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 락/할당 없는 토큰 버킷 (GCRA: 다음 토큰이 생기는 이론상 시각 하나만 CAS 로 갱신한다).
+ * 초당 ratePerSecond 개씩 채워지고 최대 burst 개까지 한 번에 쓸 수 있다.
+ */
+public final class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    // 버킷이 가득 차는 시각 - burst * 간격 (= 다음 요청이 "정시"인 시각)
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.toleranceNanos = emissionIntervalNanos * (Math.max(burst, 1) - 1);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime() - toleranceNanos - emissionIntervalNanos);
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long start = tat - nowNanos > 0 ? tat : nowNanos;
+            if (start - nowNanos > toleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, start + emissionIntervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    // tryAcquire 로 가져간 토큰 하나를 돌려준다 (다음 범위에서 거절되어 실제로 쓰지 않았을 때)
+    public void refund() {
+        theoreticalArrival.addAndGet(-emissionIntervalNanos);
+    }
+}
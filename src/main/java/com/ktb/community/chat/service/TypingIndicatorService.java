@@ -0,0 +1,118 @@
+package com.ktb.community.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ktb.community.chat.dto.ChatTypingFrameDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 입력 중 표시. DB/캐시에 저장하지 않는다.
+ * 유저별/방별로 throttle 안에 한 번만 받고, coalesce 창마다 방별로 모아 typing 채널에 한 프레임으로 발행한다.
+ * 각 노드는 이 프레임을 낮은 우선순위(SessionRegistry.broadcastEphemeral)로 보내므로, 느린 세션에서는 채팅 메시지보다 먼저 버려진다.
+ */
+@Component
+public class TypingIndicatorService {
+
+    private record TypingKey(Long roomId, Long userId) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(TypingIndicatorService.class);
+
+    private final RedisPubSubService redisPubSubService;
+    private final ObjectMapper objectMapper;
+    private final Duration coalesceWindow;
+    // throttle 동안만 남는 항목: 있으면 이미 받은 것으로 보고 버린다
+    private final Cache<TypingKey, Boolean> recent;
+    // roomId -> 이번 창에 입력한 유저. 집합은 compute 안에서만 바꾸고, flush 가 remove 로 통째로 가져간다
+    private final Map<Long, Set<Long>> pending = new ConcurrentHashMap<>();
+    private final Counter throttled;
+    private Disposable flusher;
+
+    public TypingIndicatorService(RedisPubSubService redisPubSubService,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${chat.typing.throttle-ms:2000}") long throttleMs,
+                                  @Value("${chat.typing.coalesce-window-ms:500}") long coalesceWindowMs) {
+        this.redisPubSubService = redisPubSubService;
+        this.objectMapper = objectMapper;
+        this.coalesceWindow = Duration.ofMillis(coalesceWindowMs);
+        this.recent = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(throttleMs))
+                .build();
+        this.throttled = Counter.builder("chat.typing.throttled")
+                .description("throttle 로 버린 입력 중 표시 수")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        this.flusher = Flux.interval(coalesceWindow)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush()
+                        .onErrorResume(e -> {
+                            log.warn("typing flush failed", e);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+    }
+
+    public void typing(Long roomId, Long userId) {
+        if (recent.asMap().putIfAbsent(new TypingKey(roomId, userId), Boolean.TRUE) != null) {
+            throttled.increment();
+            return;
+        }
+        // 추가와 flush 의 remove 가 같은 키 잠금 안에서 일어나므로, flush 가 가져간 집합에 뒤늦게 더해져 사라지는 일이 없다
+        pending.compute(roomId, (id, userIds) -> {
+            Set<Long> next = userIds != null ? userIds : new HashSet<>();
+            next.add(userId);
+            return next;
+        });
+    }
+
+    Mono<Void> flush() {
+        return Flux.fromIterable(new ArrayList<>(pending.keySet()))
+                .flatMap(roomId -> {
+                    Set<Long> userIds = pending.remove(roomId);
+                    if (userIds == null || userIds.isEmpty()) {
+                        return Mono.empty();
+                    }
+                    ChatTypingFrameDto frame = ChatTypingFrameDto.builder()
+                            .roomId(roomId)
+                            .userIds(new ArrayList<>(userIds))
+                            .build();
+                    return Mono.fromCallable(() -> objectMapper.writeValueAsString(frame))
+                            .flatMap(json -> redisPubSubService.publish(RedisPubSubService.typingChannel(roomId), json))
+                            // 입력 중 표시는 잃어도 다음 입력에 다시 오므로 재시도하지 않는다
+                            .onErrorResume(e -> {
+                                log.debug("typing publish failed roomId={}", roomId, e);
+                                return Mono.empty();
+                            });
+                })
+                .then();
+    }
+}
@@ -0,0 +1,184 @@
+package com.ktb.community.chat.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 유저별 안 읽은 메시지 수를 Redis 해시(chat:unread:{userId}, 필드 = roomId)로 관리한다.
+ * 해시가 없으면(만료/최초) 호출 측에서 DB 워터마크 기준으로 다시 계산해 seed 한다.
+ * 해시가 없을 때 증가/초기화를 하면 일부 방만 가진 해시가 생겨 재계산이 막히므로,
+ * 증가/초기화는 해시가 이미 있을 때만 반영한다.
+ * 재계산 중에는 해시에 REBUILDING 표시만 두고 그동안의 증가분을 모았다가, seed 할 때 DB 집계값을 더한다.
+ * 각 스크립트는 키 하나만 다루므로 Redis Cluster 에서도 슬롯이 갈리지 않는다.
+ */
+@Component
+public class UnreadCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(UnreadCounterService.class);
+    // 방이 하나도 없는 유저도 "계산 완료" 상태를 표시하기 위한 필드
+    private static final String INITIALIZED_FIELD = "_";
+    // DB 재계산 중 표시. 재계산이 실패해도 남지 않도록 짧은 TTL 을 둔다
+    private static final String REBUILDING_FIELD = "_rebuilding";
+    private static final Duration REBUILD_TTL = Duration.ofSeconds(30);
+    // 참여자 수만큼 동시에 보내는 증가 요청 상한
+    private static final int INCREMENT_CONCURRENCY = 32;
+
+    // 계산 완료 해시뿐 아니라 재계산 중인 해시에도 증가분을 쌓는다
+    private static final RedisScript<Long> INCREMENT_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                return redis.call('HINCRBY', KEYS[1], ARGV[1], 1)
+            end
+            return 0
+            """, Long.class);
+    // 재계산 중에는 DB 집계값과 섞이지 않도록 덮어쓰지 않는다
+    private static final RedisScript<Long> SET_SCRIPT = RedisScript.of("""
+            if redis.call('HEXISTS', KEYS[1], ARGV[3]) == 1 then
+                return redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+    // 해시가 없을 때만 재계산을 시작한다 (1 = 이 호출이 seed 할 차례)
+    private static final RedisScript<Long> BEGIN_REBUILD_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], '1')
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+    // 재계산 중에 쌓인 증가분에 DB 집계값을 더하고 계산 완료로 바꾼다. 표시가 사라졌으면(만료) 포기한다
+    private static final RedisScript<Long> SEED_SCRIPT = RedisScript.of("""
+            if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then
+                return 0
+            end
+            for i = 4, #ARGV, 2 do
+                redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('HDEL', KEYS[1], ARGV[1])
+            redis.call('HSET', KEYS[1], ARGV[2], '1')
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    public UnreadCounterService(@Qualifier("chatPubSub") ReactiveStringRedisTemplate redisTemplate,
+                                @Value("${chat.unread.ttl-hours:24}") long ttlHours) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = Duration.ofHours(ttlHours);
+    }
+
+    /**
+     * 메시지가 저장되면 보낸 사람을 제외한 참여자의 카운터를 1 올린다.
+     * 유저마다 키(슬롯)가 다르므로 키별로 나눠 보낸다 (한 연결에서 파이프라인으로 나간다).
+     */
+    public Mono<Void> increment(Long roomId, Long senderId, long[] memberIds) {
+        List<String> keys = new ArrayList<>(memberIds.length);
+        for (long memberId : memberIds) {
+            if (senderId == null || memberId != senderId) {
+                keys.add(key(memberId));
+            }
+        }
+        if (keys.isEmpty()) {
+            return Mono.empty();
+        }
+        List<String> args = List.of(String.valueOf(roomId));
+        return Flux.fromIterable(keys)
+                .flatMap(key -> redisTemplate.execute(INCREMENT_SCRIPT, List.of(key), args)
+                        .onErrorResume(e -> {
+                            log.warn("unread counter increment failed roomId={} key={}", roomId, key, e);
+                            return Mono.empty();
+                        }), INCREMENT_CONCURRENCY)
+                .then();
+    }
+
+    /**
+     * 읽음 처리 후 남은 안 읽은 수로 덮어쓴다 (최신까지 읽었다면 0).
+     */
+    public Mono<Void> set(Long userId, Long roomId, long count) {
+        return redisTemplate.execute(SET_SCRIPT, List.of(key(userId)),
+                        List.of(String.valueOf(roomId), String.valueOf(count), INITIALIZED_FIELD))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("unread counter set failed userId={} roomId={}", userId, roomId, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * roomId -> 안 읽은 수. 해시가 없거나 Redis 오류면 empty.
+     */
+    public Mono<Map<Long, Long>> getCounts(Long userId) {
+        return redisTemplate.<String, String>opsForHash().entries(key(userId))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .filter(entries -> entries.containsKey(INITIALIZED_FIELD))
+                .map(entries -> {
+                    Map<Long, Long> counts = new HashMap<>(entries.size());
+                    entries.forEach((field, value) -> {
+                        if (!INITIALIZED_FIELD.equals(field)) {
+                            counts.put(Long.valueOf(field), Long.valueOf(value));
+                        }
+                    });
+                    return counts;
+                })
+                .onErrorResume(e -> {
+                    log.warn("unread counter read failed userId={}", userId, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * DB 재계산을 시작한다. 이 호출이 seed 해야 하면 true, 다른 호출이 이미 재계산 중이거나 Redis 오류면 false.
+     * DB 집계보다 먼저 호출해야 그 사이의 증가분이 남는다.
+     */
+    public Mono<Boolean> beginRebuild(Long userId) {
+        return redisTemplate.execute(BEGIN_REBUILD_SCRIPT, List.of(key(userId)),
+                        List.of(REBUILDING_FIELD, String.valueOf(REBUILD_TTL.toMillis())))
+                .next()
+                .map(started -> started == 1L)
+                .defaultIfEmpty(false)
+                .onErrorResume(e -> {
+                    log.warn("unread counter rebuild start failed userId={}", userId, e);
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * beginRebuild 이후 DB에서 집계한 값을 재계산 중에 쌓인 증가분에 더해 계산 완료로 만든다.
+     * (시작 직후~DB 조회 사이에 커밋된 메시지는 한 번 더 셀 수 있으나, 읽음 처리 시 덮어써져 바로잡힌다)
+     */
+    public Mono<Void> seed(Long userId, Map<Long, Long> counts) {
+        List<String> args = new ArrayList<>(counts.size() * 2 + 3);
+        args.add(REBUILDING_FIELD);
+        args.add(INITIALIZED_FIELD);
+        args.add(String.valueOf(ttl.toMillis()));
+        counts.forEach((roomId, count) -> {
+            args.add(String.valueOf(roomId));
+            args.add(String.valueOf(count));
+        });
+        return redisTemplate.execute(SEED_SCRIPT, List.of(key(userId)), args)
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("unread counter seed failed userId={}", userId, e);
+                    return Mono.empty();
+                });
+    }
+
+    private static String key(Long userId) {
+        return "chat:unread:" + userId;
+    }
+}
@@ -0,0 +1,98 @@
+package com.ktb.community.chat.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ktb.community.entity.Role;
+import com.ktb.community.exception.BusinessException;
+import com.ktb.community.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static com.ktb.community.exception.ErrorCode.MEMBER_NOT_FOUND;
+import static reactor.core.scheduler.Schedulers.boundedElastic;
+
+/**
+ * 유저 ID -> 닉네임/권한 인프로세스 캐시 (크기 상한 + TTL).
+ * 메시지마다 발신자 닉네임을 DB에서 읽지 않도록 DtoMapper, LLM 서비스 등이 공유한다.
+ * 닉네임이 바뀌면 chat:user:invalidate 채널로 userId 를 발행해 모든 노드의 항목을 지운다
+ * (DB를 공유하는 커뮤니티 서버도 같은 채널로 발행하면 된다).
+ */
+@Component
+public class UserProfileCache {
+
+    public static final String INVALIDATION_CHANNEL = "chat:user:invalidate";
+
+    private static final Logger log = LoggerFactory.getLogger(UserProfileCache.class);
+
+    public record UserProfile(Long userId, String nickname, Role role) {
+    }
+
+    private final UserRepository userRepository;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Cache<Long, UserProfile> cache;
+
+    public UserProfileCache(UserRepository userRepository,
+                            @Qualifier("chatPubSub") ReactiveStringRedisTemplate redisTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${chat.user-cache.max-size:10000}") long maxSize,
+                            @Value("${chat.user-cache.ttl-minutes:10}") long ttlMinutes) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        // cache.gets/puts/evictions 등 히트율, 제거 메트릭
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "chat.user-profile");
+    }
+
+    /**
+     * 캐시에 있으면 스케줄러 전환 없이 바로, 없으면 DB에서 읽어 채운다. 없는 유저면 MEMBER_NOT_FOUND.
+     */
+    public Mono<UserProfile> get(Long userId) {
+        UserProfile cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Mono.fromCallable(() -> userRepository.findById(userId)
+                        .map(user -> new UserProfile(user.getId(), user.getNickname(), user.getRole()))
+                        .orElseThrow(() -> new BusinessException(MEMBER_NOT_FOUND)))
+                .subscribeOn(boundedElastic())
+                .doOnNext(profile -> cache.put(userId, profile));
+    }
+
+    public void evict(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    // 닉네임 변경 등 프로필이 바뀌었을 때 모든 노드의 캐시를 비운다
+    public Mono<Void> publishInvalidation(Long userId) {
+        evict(userId);
+        return redisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.valueOf(userId))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("user profile invalidation publish failed userId={}", userId, e);
+                    return Mono.empty();
+                });
+    }
+
+    public Mono<Void> handleInvalidation(String payload) {
+        return Mono.fromRunnable(() -> {
+            try {
+                evict(Long.valueOf(payload.trim()));
+            } catch (NumberFormatException e) {
+                // ignore malformed payload to avoid crashing listener
+            }
+        });
+    }
+}
@@ -1,13 +1,11 @@
 package com.ktb.community.config;
 
-import com.ktb.community.chat.service.RedisPubSubService;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
-import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
@@ -37,16 +35,11 @@ public class RedisConfig {
         return new ReactiveStringRedisTemplate(redisConnectionFactory);
     }
 
-    // subscribe 객체
+    // subscribe 객체: 채널 구독은 RedisPubSubService 가 필요할 때 등록/해제한다
     @Bean
     public ReactiveRedisMessageListenerContainer reactiveRedisMessageListenerContainer(
-            ReactiveRedisConnectionFactory redisConnectionFactory,
-            RedisPubSubService redisPubSubService
+            ReactiveRedisConnectionFactory redisConnectionFactory
     ) {
-        ReactiveRedisMessageListenerContainer container = new ReactiveRedisMessageListenerContainer(redisConnectionFactory);
-        container.receive(ChannelTopic.of("chat"))
-                .flatMap(message -> redisPubSubService.handleMessage(message.getMessage()))
-                .subscribe();
-        return container;
+        return new ReactiveRedisMessageListenerContainer(redisConnectionFactory);
     }
 }
@@ -23,8 +23,14 @@ public enum ErrorCode {
     MEMBER_NOT_FOUND(HttpStatus.NOT_FOUND, "E-M001", "해당 회원을 찾을 수 없습니다."),
     ROOM_NOT_FOUND(HttpStatus.NOT_FOUND, "E-R001", "해당 채팅방을 찾을 수 없습니다."),
 
+    // 429 TOO_MANY_REQUESTS: 요청 한도 초과
+    RATE_LIMITED(HttpStatus.TOO_MANY_REQUESTS, "E-RL001", "메시지를 너무 빠르게 보내고 있습니다. 잠시 후 다시 시도해주세요."),
+
     // 500 INTERNAL_SERVER_ERROR: 서버 내부 오류
-    INTERNAL_SERVER_ERROR(HttpStatus.INTERNAL_SERVER_ERROR, "E-S001", "서버에 오류가 발생했습니다. 잠시 후 다시 시도해주세요.");
+    INTERNAL_SERVER_ERROR(HttpStatus.INTERNAL_SERVER_ERROR, "E-S001", "서버에 오류가 발생했습니다. 잠시 후 다시 시도해주세요."),
+
+    // 503 SERVICE_UNAVAILABLE: 일시적으로 처리할 수 없음
+    PERSISTENCE_BACKLOGGED(HttpStatus.SERVICE_UNAVAILABLE, "E-S002", "메시지가 많아 잠시 저장할 수 없습니다. 잠시 후 다시 시도해주세요.");
 
     private final HttpStatus status;
     private final String code;
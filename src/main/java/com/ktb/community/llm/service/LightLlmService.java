@@ -1,71 +1,53 @@
 package com.ktb.community.llm.service;
 
 
-import com.ktb.community.chat.entity.ChatMessage;
-import com.ktb.community.chat.entity.ChatRoom;
-import com.ktb.community.chat.repository.ChatMessageRepository;
-import com.ktb.community.chat.repository.ChatRoomRepository;
-import com.ktb.community.exception.BusinessException;
+import com.ktb.community.chat.dto.ChatMessageDto;
+import com.ktb.community.chat.service.RecentMessageCache;
+import com.ktb.community.chat.service.UserProfileCache;
 import com.ktb.community.llm.dto.*;
-import com.ktb.community.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 import java.util.*;
 
-import static com.ktb.community.exception.ErrorCode.INTERNAL_SERVER_ERROR;
-import static com.ktb.community.exception.ErrorCode.MEMBER_NOT_FOUND;
-import static com.ktb.community.exception.ErrorCode.ROOM_NOT_FOUND;
-import static reactor.core.scheduler.Schedulers.boundedElastic;
-
 @Service
 @RequiredArgsConstructor
 public class LightLlmService {
 
+    private static final int RECENT_MESSAGE_COUNT = 10;
+
     private final WebClient webClient;
-    private final ChatMessageRepository chatMessageRepository;
-    private final ChatRoomRepository chatRoomRepository;
-    private final UserRepository userRepository;
-    private final TransactionTemplate transactionTemplate;
+    private final RecentMessageCache recentMessageCache;
+    private final UserProfileCache userProfileCache;
 
     @Value("${llm.gemini.key}")
     private String geminiApiKey;
 
     public Mono<UserLlmChatResponseDto> getChat(Long roomId, Long userId) {
-        return Mono.fromCallable(() -> {
-                    List<String> messages = fetchFormattedMessages(roomId);
-                    String requesterNickname = fetchUserNickname(userId);
-                    return buildGeminiRequest(messages, requesterNickname);
-                })
-                .subscribeOn(boundedElastic())
+        // 최근 대화는 Redis 최근 메시지 캐시에서 먼저 읽고, 없으면 MySQL에서 채운다
+        return recentMessageCache.getOrLoad(roomId)
+                .map(this::formatRecentMessages)
+                .zipWith(fetchUserNickname(userId))
+                .map(tuple -> buildGeminiRequest(tuple.getT1(), tuple.getT2()))
                 .flatMap(this::callGemini)
                 .map(this::toUserResponse);
     }
 
-    private List<String> fetchFormattedMessages(Long roomId) {
-        return Optional.ofNullable(transactionTemplate.execute(status -> {
-                    ChatRoom chatRoom = chatRoomRepository.findById(roomId)
-                            .orElseThrow(() -> new BusinessException(ROOM_NOT_FOUND));
-                    List<ChatMessage> recentMessages = chatMessageRepository.findTop10ByChatRoomOrderByCreatedAtDesc(chatRoom);
-                    Collections.reverse(recentMessages); // 가장 오래된 것부터 정렬
-                    return recentMessages.stream()
-                            .map(this::formatMessageWithSender)
-                            .toList();
-                }))
-                .orElseThrow(() -> new BusinessException(INTERNAL_SERVER_ERROR));
+    private List<String> formatRecentMessages(RecentMessageCache.Snapshot snapshot) {
+        List<ChatMessageDto> recentMessages = new ArrayList<>(
+                snapshot.newestFirst().subList(0, Math.min(RECENT_MESSAGE_COUNT, snapshot.newestFirst().size())));
+        Collections.reverse(recentMessages); // 가장 오래된 것부터 정렬
+        return recentMessages.stream()
+                .map(this::formatMessageWithSender)
+                .toList();
     }
 
-    private String fetchUserNickname(Long userId) {
-        return Optional.ofNullable(transactionTemplate.execute(status ->
-                        userRepository.findById(userId)
-                                .map(user -> Optional.ofNullable(user.getNickname()).orElse("알 수 없는 사용자"))
-                                .orElseThrow(() -> new BusinessException(MEMBER_NOT_FOUND))
-                ))
-                .orElseThrow(() -> new BusinessException(INTERNAL_SERVER_ERROR));
+    private Mono<String> fetchUserNickname(Long userId) {
+        return userProfileCache.get(userId)
+                .map(profile -> Optional.ofNullable(profile.nickname()).orElse("알 수 없는 사용자"));
     }
 
     private GeminiGenerateContentRequestDto buildGeminiRequest(List<String> messages, String requesterNickname) {
@@ -86,11 +68,9 @@ public class LightLlmService {
                 .build();
     }
 
-    private String formatMessageWithSender(ChatMessage chatMessage) {
-        String senderName = Optional.ofNullable(chatMessage.getUser())
-                .map(user -> Optional.ofNullable(user.getNickname()).orElse("알 수 없는 사용자"))
-                .orElse("알 수 없는 사용자");
-        return "[" + senderName + "]: " + chatMessage.getContents();
+    private String formatMessageWithSender(ChatMessageDto chatMessage) {
+        String senderName = Optional.ofNullable(chatMessage.getNickName()).orElse("알 수 없는 사용자");
+        return "[" + senderName + "]: " + chatMessage.getMessage();
     }
 
     private Mono<GeminiGenerateContentResponseDto> callGemini(GeminiGenerateContentRequestDto requestDto) {
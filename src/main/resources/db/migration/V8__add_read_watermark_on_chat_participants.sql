@@ -0,0 +1,19 @@
+-- 메시지 x 참여자 단위의 read_status 대신 참여자별 읽음 워터마크를 사용한다
+ALTER TABLE chat_participants
+  ADD COLUMN last_read_message_id bigint not null default 0;
+
+-- 기존 read_status 기반 백필
+-- 1) 안 읽은 메시지가 있으면 가장 오래된 안 읽은 메시지 직전까지 읽은 것으로 본다
+-- 2) 모두 읽었다면 읽은 메시지 중 가장 최근 메시지까지
+-- 3) read_status가 없다면(메시지 이후 참여) 채팅방의 최신 메시지까지
+UPDATE chat_participants cp
+SET cp.last_read_message_id = COALESCE(
+    (SELECT MIN(rs.chat_message_id) - 1 FROM read_status rs
+      WHERE rs.chat_room_id = cp.chat_room_id AND rs.user_id = cp.user_id AND rs.is_read = FALSE),
+    (SELECT MAX(rs.chat_message_id) FROM read_status rs
+      WHERE rs.chat_room_id = cp.chat_room_id AND rs.user_id = cp.user_id AND rs.is_read = TRUE),
+    (SELECT MAX(m.chat_message_id) FROM chat_messages m
+      WHERE m.chat_room_id = cp.chat_room_id),
+    0);
+
+-- read_status 테이블은 더 이상 쓰지 않는다. 롤백 대비로 남겨두고 이후 마이그레이션에서 정리한다.
@@ -0,0 +1,2 @@
+-- 채팅 이력 키셋 페이지네이션 (chat_room_id = ? AND chat_message_id < ? ORDER BY chat_message_id DESC)
+CREATE INDEX idx_chat_messages_room_message ON chat_messages (chat_room_id, chat_message_id);
@@ -0,0 +1,42 @@
+package com.ktb.community.chat.config;
+
+import com.ktb.community.chat.service.ChatDrainService;
+import com.ktb.community.chat.service.ChatServiceImpl;
+import com.ktb.community.util.JWTUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ChatWebSocketAuthFilterTest {
+
+    private final JWTUtil jwtUtil = mock(JWTUtil.class);
+    private final ChatServiceImpl chatService = mock(ChatServiceImpl.class);
+    private final ChatDrainService chatDrainService = mock(ChatDrainService.class);
+    private final ChatWebSocketAuthFilter filter = new ChatWebSocketAuthFilter(jwtUtil, chatService, chatDrainService);
+
+    @Test
+    void drain_중이면_인증_전에_503과_Retry_After로_거절한다() {
+        when(chatDrainService.isDraining()).thenReturn(true);
+        WebFilterChain chain = mock(WebFilterChain.class);
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/v1/chat/connect?access=token&roomId=1"));
+
+        filter.filter(exchange, chain).block();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        verify(chain, never()).filter(any());
+        verifyNoInteractions(jwtUtil, chatService);
+    }
+}
@@ -0,0 +1,98 @@
+package com.ktb.community.chat.config;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatWebSocketCompressionTest {
+
+    @Test
+    void 클라이언트가_요청하면_permessage_deflate_를_협상하고_크기와_상관없이_주고받는다() {
+        ChatWebSocketCompression compression = new ChatWebSocketCompression(true, 6, 256, true, false, 65536);
+        DisposableServer server = compression.apply(HttpServer.create().port(0))
+                .route(routes -> routes.ws("/v1/chat/connect",
+                        (in, out) -> out.sendString(in.aggregateFrames().receive().asString())))
+                .bindNow();
+        try {
+            String large = "안녕하세요 ".repeat(200);
+            List<String> sent = List.of("{\"type\":\"small\"}", large);
+            String[] extensions = new String[1];
+
+            List<String> echoed = HttpClient.create()
+                    .port(server.port())
+                    .websocket(WebsocketClientSpec.builder().compress(true).build())
+                    .uri("/v1/chat/connect")
+                    .handle((in, out) -> {
+                        extensions[0] = in.headers().get("Sec-WebSocket-Extensions");
+                        return out.sendString(Flux.fromIterable(sent)).then()
+                                .thenMany(in.aggregateFrames().receive().asString().take(sent.size()));
+                    })
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+
+            assertThat(extensions[0]).startsWith("permessage-deflate");
+            assertThat(echoed).containsExactlyElementsOf(sent);
+        } finally {
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    void 풀었을_때_max_inflate_bytes를_넘는_프레임은_거절하고_연결을_닫는다() {
+        ChatWebSocketCompression compression = new ChatWebSocketCompression(true, 6, 256, true, false, 1024);
+        DisposableServer server = compression.apply(HttpServer.create().port(0))
+                .route(routes -> routes.ws("/v1/chat/connect",
+                        (in, out) -> out.sendString(in.aggregateFrames().receive().asString())))
+                .bindNow();
+        try {
+            // 압축하면 수십 바이트지만 풀면 제한의 몇 배가 된다
+            String bomb = "a".repeat(64 * 1024);
+            List<String> sent = List.of("{\"type\":\"small\"}", bomb, "{\"type\":\"after\"}");
+
+            List<String> echoed = HttpClient.create()
+                    .port(server.port())
+                    .websocket(WebsocketClientSpec.builder().compress(true).build())
+                    .uri("/v1/chat/connect")
+                    .handle((in, out) -> out.sendString(Flux.fromIterable(sent)).then()
+                            .thenMany(in.aggregateFrames().receive().asString())
+                            .onErrorResume(e -> Flux.empty()))
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+
+            // 제한 안의 프레임만 처리되고, 넘는 프레임에서 연결이 끊겨 뒤 프레임도 처리되지 않는다
+            assertThat(echoed).containsExactly(sent.get(0));
+        } finally {
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    void 비활성화하면_확장을_협상하지_않는다() {
+        ChatWebSocketCompression compression = new ChatWebSocketCompression(false, 6, 256, true, false, 65536);
+        DisposableServer server = compression.apply(HttpServer.create().port(0))
+                .route(routes -> routes.ws("/v1/chat/connect", (in, out) -> out.sendString(Mono.just("ok"))))
+                .bindNow();
+        try {
+            String extensions = HttpClient.create()
+                    .port(server.port())
+                    .websocket(WebsocketClientSpec.builder().compress(true).build())
+                    .uri("/v1/chat/connect")
+                    .handle((in, out) -> Mono.justOrEmpty(in.headers().get("Sec-WebSocket-Extensions"))
+                            .defaultIfEmpty(""))
+                    .blockFirst(Duration.ofSeconds(10));
+
+            assertThat(extensions).isEmpty();
+        } finally {
+            server.disposeNow();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ktb.community.chat.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ktb.community.chat.dto.ChatInboundFrameDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InboundFrameReaderTest {
+
+    private final InboundFrameReader reader = new InboundFrameReader(new ObjectMapper());
+
+    @Test
+    void 알고_있는_필드만_읽고_나머지는_건너뛴다() throws IOException {
+        ChatInboundFrameDto frame = reader.read(
+                "{\"meta\":{\"roomId\":99,\"tags\":[1,2]},\"type\":\"chat\",\"roomId\":\"10\",\"senderId\":7,\"message\":\"안녕\"}");
+
+        assertThat(frame.isType(ChatInboundFrameDto.CHAT)).isTrue();
+        assertThat(frame.getRoomId()).isEqualTo(10L);
+        assertThat(frame.getSenderId()).isEqualTo(7L);
+        assertThat(frame.getMessage()).isEqualTo("안녕");
+        assertThatThrownBy(() -> reader.read("[1,2]")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void 라우팅_필드만_읽는다() {
+        assertThat(reader.readLongField("{\"type\":\"read\",\"body\":{\"userId\":1},\"userId\":42}", "userId")).isEqualTo(42L);
+        assertThat(reader.readLongField("{\"type\":\"read\"}", "userId")).isNull();
+        assertThat(reader.readLongField("not json", "userId")).isNull();
+    }
+}
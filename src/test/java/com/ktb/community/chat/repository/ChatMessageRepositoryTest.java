@@ -0,0 +1,71 @@
+package com.ktb.community.chat.repository;
+
+import com.ktb.community.chat.dto.ChatMessageDto;
+import com.ktb.community.chat.entity.ChatMessage;
+import com.ktb.community.chat.entity.ChatRoom;
+import com.ktb.community.entity.Role;
+import com.ktb.community.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ChatMessageRepositoryTest {
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void findHistoryPage_발신자를_조인해_한번의_쿼리로_조회한다() {
+        ChatRoom room = em.persist(ChatRoom.builder().name("통계테스트").isGroupChat(true).build());
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(em.persist(User.builder()
+                    .email("history" + i + "@example.com")
+                    .password("password")
+                    .nickname("user" + i)
+                    .role(Role.USER)
+                    .build()));
+        }
+        for (long id = 1; id <= 30; id++) {
+            em.persist(ChatMessage.builder()
+                    .id(id)
+                    .contents("message-" + id)
+                    .user(users.get((int) (id % users.size())))
+                    .chatRoom(room)
+                    .build());
+        }
+        em.flush();
+        em.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ChatMessageDto> page = chatMessageRepository.findHistoryPage(room.getId(), 21L, PageRequest.of(0, 10));
+
+        assertThat(page).extracting(ChatMessageDto::getMessageId)
+                .containsExactly(20L, 19L, 18L, 17L, 16L, 15L, 14L, 13L, 12L, 11L);
+        assertThat(page).allSatisfy(dto -> {
+            assertThat(dto.getRoomId()).isEqualTo(room.getId());
+            assertThat(dto.getNickName()).isEqualTo("user" + (dto.getMessageId() % users.size()));
+        });
+        // 메시지 수와 관계없이 발신자 조회까지 한 문장으로 끝나야 한다 (N+1 회귀 방지)
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,67 @@
+package com.ktb.community.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatDrainServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionRegistry sessionRegistry =
+            new SessionRegistry(meterRegistry, 16, SessionOutbox.OverflowPolicy.DROP_OLDEST, 1000, 2);
+    private final InboundConcurrencyLimiter inboundLimiter = mock(InboundConcurrencyLimiter.class);
+    private final ChatMessageBatchWriter batchWriter = mock(ChatMessageBatchWriter.class);
+    private final RedisPubSubService redisPubSubService = mock(RedisPubSubService.class);
+    // spread 0초, grace 10ms
+    private final ChatDrainService drainService = new ChatDrainService(sessionRegistry,
+            new SessionReaper(sessionRegistry, meterRegistry, 20, 60, 30), inboundLimiter, batchWriter,
+            redisPubSubService, new ObjectMapper(), 0, 10, 5);
+
+    @Test
+    void drain_스냅샷_뒤에_등록된_세션까지_닫고_처리가_끝난_뒤_방_채널만_끊는다() {
+        when(inboundLimiter.getInFlight()).thenReturn(0);
+        // 저장 대기 배치가 두 번 폴링하는 동안 남아 있다
+        when(batchWriter.isIdle()).thenReturn(false, false, true);
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        // 첫 세션이 reconnect 를 받는 시점에 (drain 직전에 필터를 통과한) 새 세션이 등록된다
+        sessionRegistry.registerSession("s1", 1L).getOutbox().asFlux().subscribe(buffer -> {
+            received.add("s1:" + buffer.toString(StandardCharsets.UTF_8));
+            buffer.release();
+            sessionRegistry.registerSession("late", 2L).getOutbox().asFlux().subscribe(late -> {
+                received.add("late:" + late.toString(StandardCharsets.UTF_8));
+                late.release();
+            });
+        });
+
+        drainService.drain().block(Duration.ofSeconds(5));
+
+        assertThat(drainService.isDraining()).isTrue();
+        assertThat(sessionRegistry.getConnections()).isEmpty();
+        assertThat(received).hasSize(2)
+                .allSatisfy(frame -> assertThat(frame).contains("\"type\":\"reconnect\""));
+        InOrder order = inOrder(batchWriter, redisPubSubService);
+        order.verify(batchWriter, atLeast(3)).isIdle();
+        order.verify(redisPubSubService).closeRoomListeners();
+        // 전역 채널은 컨텍스트 종료 때까지 유지한다
+        verify(redisPubSubService, never()).closeGlobalListener();
+
+        // 다시 호출해도 같은 drain 이다
+        drainService.drain().block(Duration.ofSeconds(1));
+        verify(redisPubSubService).closeRoomListeners();
+    }
+}
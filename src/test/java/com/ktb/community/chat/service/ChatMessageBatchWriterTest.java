@@ -0,0 +1,185 @@
+package com.ktb.community.chat.service;
+
+import com.ktb.community.chat.dto.ChatMessageDto;
+import com.ktb.community.chat.entity.ChatRoom;
+import com.ktb.community.chat.repository.ChatRoomRepository;
+import com.ktb.community.entity.Role;
+import com.ktb.community.entity.User;
+import com.ktb.community.exception.BusinessException;
+import com.ktb.community.exception.ErrorCode;
+import com.ktb.community.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// 배치는 별도 스레드의 트랜잭션에서 커밋되므로 테스트 트랜잭션 없이 실제로 커밋한다
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChatMessageBatchWriterTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    private final AtomicLong ids = new AtomicLong(1000);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private SnowflakeIdGenerator idGenerator;
+    private ChatMessageBatchWriter writer;
+    private ChatRoom room;
+    private User sender;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        idGenerator = mock(SnowflakeIdGenerator.class);
+        when(idGenerator.nextId()).thenAnswer(invocation -> ids.incrementAndGet());
+        room = chatRoomRepository.save(ChatRoom.builder().name("배치테스트").isGroupChat(true).build());
+        sender = userRepository.save(User.builder()
+                .email("batch@example.com")
+                .password("password")
+                .nickname("batch")
+                .role(Role.USER)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM chat_messages");
+        chatRoomRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void write_한_배치_안에서_저장된_메시지는_완료하고_없는_방은_각자_실패시킨다() throws Exception {
+        writer = newWriter(500, 10_000);
+
+        CompletableFuture<ChatMessageDto> saved = writer.write(room.getId(), sender.getId(), "hello").toFuture();
+        CompletableFuture<ChatMessageDto> missingRoom = writer.write(room.getId() + 999, sender.getId(), "lost").toFuture();
+        CompletableFuture<ChatMessageDto> missingSender = writer.write(room.getId(), sender.getId() + 999, "lost").toFuture();
+
+        ChatMessageDto dto = saved.get(5, TimeUnit.SECONDS);
+        assertThat(dto.getRoomId()).isEqualTo(room.getId());
+        assertThat(dto.getMessage()).isEqualTo("hello");
+        assertThat(errorCodeOf(missingRoom)).isEqualTo(ErrorCode.ROOM_NOT_FOUND);
+        assertThat(errorCodeOf(missingSender)).isEqualTo(ErrorCode.MEMBER_NOT_FOUND);
+
+        // 실패한 메시지는 저장되지 않고, 완료된 메시지는 커밋되어 있다
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages WHERE chat_message_id = :id",
+                Map.of("id", dto.getMessageId()), Long.class);
+        assertThat(count).isEqualTo(1L);
+        assertThat(jdbcTemplate.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM chat_messages", Long.class))
+                .isEqualTo(1L);
+        writer.shutdown();
+        assertThat(writer.isIdle()).isTrue();
+    }
+
+    @Test
+    void write_대기열이_가득_차면_기다리지_않고_거절한다() throws Exception {
+        // 창이 길어 첫 메시지가 대기열에 머무는 동안 두 번째 메시지를 넣는다
+        writer = newWriter(60_000, 1);
+
+        CompletableFuture<ChatMessageDto> first = writer.write(room.getId(), sender.getId(), "first").toFuture();
+        assertThat(writer.isIdle()).isFalse();
+
+        assertThatThrownBy(() -> writer.write(room.getId(), sender.getId(), "second").block())
+                .isInstanceOfSatisfying(BusinessException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.PERSISTENCE_BACKLOGGED));
+        assertThat(meterRegistry.counter("chat.persistence.rejected").count()).isEqualTo(1.0);
+        assertThat(writer.getQueueDepth()).isEqualTo(1);
+
+        // 종료 시 남은 메시지는 저장된다
+        writer.shutdown();
+        assertThat(first.get(5, TimeUnit.SECONDS).getMessage()).isEqualTo("first");
+        assertThat(writer.isIdle()).isTrue();
+    }
+
+    @Test
+    void isIdle_대기열이_비어도_쓰는_중인_배치가_있으면_false다() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        // 배치 트랜잭션을 시작한 채로 멈춰 둔다
+        TransactionTemplate blocking = new TransactionTemplate(transactionManager) {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                writing.countDown();
+                try {
+                    proceed.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.execute(action);
+            }
+        };
+        writer = newWriter(blocking, 10, 10_000);
+        assertThat(writer.isIdle()).isTrue();
+
+        CompletableFuture<ChatMessageDto> saved = writer.write(room.getId(), sender.getId(), "slow").toFuture();
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(writer.getQueueDepth()).isZero();
+        assertThat(writer.isIdle()).isFalse();
+
+        proceed.countDown();
+        saved.get(5, TimeUnit.SECONDS);
+        // 완료 신호 뒤에 in-flight 가 내려갈 수 있으므로 잠깐 기다린다
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!writer.isIdle() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(writer.isIdle()).isTrue();
+    }
+
+    private ChatMessageBatchWriter newWriter(long batchWindowMs, int maxQueueSize) {
+        return newWriter(new TransactionTemplate(transactionManager), batchWindowMs, maxQueueSize);
+    }
+
+    private ChatMessageBatchWriter newWriter(TransactionTemplate transactionTemplate, long batchWindowMs, int maxQueueSize) {
+        return new ChatMessageBatchWriter(jdbcTemplate, transactionTemplate, idGenerator,
+                meterRegistry, batchWindowMs, 200, 1, maxQueueSize);
+    }
+
+    private static ErrorCode errorCodeOf(CompletableFuture<ChatMessageDto> future) throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            throw new AssertionError("실패해야 하는 메시지가 완료되었다");
+        } catch (ExecutionException e) {
+            return ((BusinessException) e.getCause()).getErrorCode();
+        } catch (TimeoutException e) {
+            throw new AssertionError("결과가 오지 않았다", e);
+        }
+    }
+}
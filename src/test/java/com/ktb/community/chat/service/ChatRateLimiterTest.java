@@ -0,0 +1,71 @@
+package com.ktb.community.chat.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatRateLimiterTest {
+
+    private final ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void acquire_방에서_거절되면_세션_토큰을_돌려준다() {
+        // 테스트 중에는 다시 채워지지 않을 만큼 느린 rate. 세션 2개, 방 1개, 유저 lease 1개
+        ChatRateLimiter limiter = limiter(2, 1);
+        givenUserTokens(1L, 1L, 1L);
+        TokenBucket first = limiter.newSessionBucket();
+        TokenBucket second = limiter.newSessionBucket();
+
+        assertThat(limiter.acquire(first, 1L, 10L).blockOptional()).isEmpty();
+        assertThat(limiter.acquire(second, 2L, 10L).block()).isEqualTo(ChatRateLimiter.Scope.ROOM);
+
+        // 방 거절로 세션 토큰을 쓰지 않았으므로 다른 방에는 두 번 보낼 수 있다
+        assertThat(limiter.acquire(second, 2L, 20L).blockOptional()).isEmpty();
+        assertThat(limiter.acquire(second, 2L, 30L).blockOptional()).isEmpty();
+        assertThat(limiter.acquire(second, 2L, 40L).block()).isEqualTo(ChatRateLimiter.Scope.SESSION);
+        assertThat(rejected(ChatRateLimiter.Scope.ROOM)).isEqualTo(1.0);
+        assertThat(rejected(ChatRateLimiter.Scope.SESSION)).isEqualTo(1.0);
+    }
+
+    @Test
+    void acquire_유저에서_거절되면_세션과_방_토큰을_돌려준다() {
+        ChatRateLimiter limiter = limiter(1, 1);
+        // 첫 요청은 유저 한도 초과, 두 번째는 허용
+        givenUserTokens(0L, 1L);
+        TokenBucket session = limiter.newSessionBucket();
+
+        assertThat(limiter.acquire(session, 1L, 10L).block()).isEqualTo(ChatRateLimiter.Scope.USER);
+        // 세션/방 버킷이 1개뿐이어도 앞선 거절에서 돌려받았으므로 보낼 수 있다
+        assertThat(limiter.acquire(session, 1L, 10L).blockOptional()).isEmpty();
+        assertThat(rejected(ChatRateLimiter.Scope.USER)).isEqualTo(1.0);
+        assertThat(rejected(ChatRateLimiter.Scope.ROOM)).isZero();
+        assertThat(rejected(ChatRateLimiter.Scope.SESSION)).isZero();
+    }
+
+    private ChatRateLimiter limiter(int sessionBurst, int roomBurst) {
+        return new ChatRateLimiter(redisTemplate, meterRegistry,
+                0.001, sessionBurst, 0.001, roomBurst, 0.001, 10, 1, 10);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenUserTokens(Long first, Long... rest) {
+        Flux<Long>[] next = new Flux[rest.length];
+        for (int i = 0; i < rest.length; i++) {
+            next[i] = Flux.just(rest[i]);
+        }
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(first), next);
+    }
+
+    private double rejected(ChatRateLimiter.Scope scope) {
+        return meterRegistry.counter("chat.ratelimit.rejected", "scope", scope.getTag()).count();
+    }
+}
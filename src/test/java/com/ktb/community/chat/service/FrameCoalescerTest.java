@@ -0,0 +1,39 @@
+package com.ktb.community.chat.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrameCoalescerTest {
+
+    @Test
+    void window_안의_프레임을_바이트_상한까지_JSON_배열로_묶는다() {
+        FrameCoalescer coalescer = new FrameCoalescer(50, 17);
+        List<ByteBuf> frames = List.of(frame("{\"a\":1}"), frame("{\"b\":2}"), frame("{\"c\":3}"));
+
+        List<String> arrays = coalescer.coalesce(Flux.fromIterable(frames))
+                .map(buffer -> {
+                    try {
+                        return buffer.toString(StandardCharsets.UTF_8);
+                    } finally {
+                        buffer.release();
+                    }
+                })
+                .collectList()
+                .block();
+
+        assertThat(arrays).containsExactly("[{\"a\":1},{\"b\":2}]", "[{\"c\":3}]");
+        assertThat(frames).allSatisfy(frame -> assertThat(frame.refCnt()).isZero());
+    }
+
+    private static ByteBuf frame(String json) {
+        return ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, json);
+    }
+}
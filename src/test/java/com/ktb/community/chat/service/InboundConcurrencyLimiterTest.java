@@ -0,0 +1,38 @@
+package com.ktb.community.chat.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InboundConcurrencyLimiterTest {
+
+    @Test
+    void 상한을_넘는_작업은_자리가_날_때까지_시작하지_않는다() {
+        InboundConcurrencyLimiter limiter = new InboundConcurrencyLimiter(new SimpleMeterRegistry(), 1);
+        List<String> started = new ArrayList<>();
+        Sinks.Empty<Void> first = Sinks.empty();
+
+        limiter.withPermit(Mono.defer(() -> {
+            started.add("first");
+            return first.asMono();
+        })).subscribe();
+        Disposable cancelled = limiter.withPermit(Mono.fromRunnable(() -> started.add("cancelled"))).subscribe();
+        limiter.withPermit(Mono.fromRunnable(() -> started.add("third"))).subscribe();
+        assertThat(started).containsExactly("first");
+
+        // 기다리다 취소된 작업은 건너뛰고 다음 대기자가 자리를 받는다
+        cancelled.dispose();
+        first.tryEmitEmpty();
+        assertThat(started).containsExactly("first", "third");
+
+        limiter.withPermit(Mono.fromRunnable(() -> started.add("fourth"))).subscribe();
+        assertThat(started).containsExactly("first", "third", "fourth");
+    }
+}
@@ -0,0 +1,90 @@
+package com.ktb.community.chat.service;
+
+import com.ktb.community.chat.dto.ChatMessageDto;
+import com.ktb.community.chat.repository.ChatMessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageReplayServiceTest {
+
+    private final RecentMessageCache recentMessageCache = mock(RecentMessageCache.class);
+    private final ChatMessageRepository chatMessageRepository = mock(ChatMessageRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MessageReplayService service =
+            new MessageReplayService(recentMessageCache, chatMessageRepository, meterRegistry, 3);
+
+    @Test
+    void findGap_캐시가_구간을_담고_있으면_캐시에서_아니면_DB에서_읽는다() {
+        // 캐시의 가장 오래된 메시지(4)가 lastSeen 이하: 캐시로 충분하다
+        when(recentMessageCache.get(7L)).thenReturn(Mono.just(snapshot(false, 6, 5, 4)));
+
+        MessageReplayService.Gap gap = service.findGap(7L, 4L).block();
+        assertThat(gap.reloadRequired()).isFalse();
+        assertThat(gap.messages()).extracting(ChatMessageDto::getMessageId).containsExactly(5L, 6L);
+        verify(chatMessageRepository, never()).findMessagesAfter(anyLong(), anyLong(), any(Pageable.class));
+
+        // lastSeen(2) 이 캐시보다 오래됐고 캐시가 방 전체도 아니다: DB 에서 한 건 더 읽는다
+        when(chatMessageRepository.findMessagesAfter(7L, 2L, PageRequest.of(0, 4))).thenReturn(messages(3, 4));
+
+        gap = service.findGap(7L, 2L).block();
+        assertThat(gap.messages()).extracting(ChatMessageDto::getMessageId).containsExactly(3L, 4L);
+        assertThat(replays("cache")).isEqualTo(1.0);
+        assertThat(replays("db")).isEqualTo(1.0);
+    }
+
+    @Test
+    void findGap_max_replay_messages를_넘으면_reload로_응답한다() {
+        // 방 전체를 담은 캐시에서 놓친 메시지가 4건
+        when(recentMessageCache.get(7L)).thenReturn(Mono.just(snapshot(true, 4, 3, 2, 1)));
+        assertThat(service.findGap(7L, 0L).block()).isEqualTo(MessageReplayService.Gap.RELOAD);
+
+        // 캐시가 없고 DB 에서 max + 1 건이 읽혔다
+        when(recentMessageCache.get(8L)).thenReturn(Mono.empty());
+        when(chatMessageRepository.findMessagesAfter(8L, 0L, PageRequest.of(0, 4))).thenReturn(messages(1, 2, 3, 4));
+        assertThat(service.findGap(8L, 0L).block()).isEqualTo(MessageReplayService.Gap.RELOAD);
+
+        assertThat(replays("reload")).isEqualTo(2.0);
+        assertThat(replays("cache")).isZero();
+        assertThat(replays("db")).isZero();
+    }
+
+    @Test
+    void findGap_조회에_실패하면_reload로_응답한다() {
+        when(recentMessageCache.get(7L)).thenReturn(Mono.empty());
+        when(chatMessageRepository.findMessagesAfter(anyLong(), anyLong(), any(Pageable.class)))
+                .thenThrow(new IllegalStateException("db down"));
+
+        assertThat(service.findGap(7L, 1L).block()).isEqualTo(MessageReplayService.Gap.RELOAD);
+        assertThat(replays("reload")).isEqualTo(1.0);
+    }
+
+    private static RecentMessageCache.Snapshot snapshot(boolean complete, long... newestFirst) {
+        return new RecentMessageCache.Snapshot(messages(newestFirst), complete);
+    }
+
+    private static List<ChatMessageDto> messages(long... messageIds) {
+        List<ChatMessageDto> messages = new ArrayList<>();
+        for (long id : messageIds) {
+            messages.add(ChatMessageDto.builder().roomId(7L).messageId(id).message("m" + id).build());
+        }
+        return messages;
+    }
+
+    private double replays(String source) {
+        return meterRegistry.counter("chat.resume.replays", "source", source).count();
+    }
+}
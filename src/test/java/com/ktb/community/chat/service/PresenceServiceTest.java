@@ -0,0 +1,67 @@
+package com.ktb.community.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PresenceServiceTest {
+
+    private final SessionRegistry sessionRegistry =
+            new SessionRegistry(new SimpleMeterRegistry(), 16, SessionOutbox.OverflowPolicy.DROP_OLDEST, 1000, 2);
+    private final RedisPubSubService redisPubSubService = mock(RedisPubSubService.class);
+    private final ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+    // 테스트 중에는 heartbeat 가 돌지 않는다
+    private final PresenceService presenceService = new PresenceService(sessionRegistry, redisPubSubService,
+            redisTemplate, new ObjectMapper(), 1000, 3600, 45, 4);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_이전에_반영한_유저와_비교해_들어온_유저와_나간_유저만_보낸다() {
+        sessionRegistry.setSubscriptionListener(presenceService);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.just(List.of("+1", "+2")), Flux.just(List.of("+3", "-2")));
+        when(redisPubSubService.publishToRoom(eq(10L), anyString())).thenReturn(Mono.just(1L));
+
+        sessionRegistry.registerSession("s1", 1L);
+        sessionRegistry.registerSession("s2", 2L);
+        sessionRegistry.subscribe("s1", 10L);
+        sessionRegistry.subscribe("s2", 10L);
+        presenceService.flush().block();
+
+        // 유저 2가 나가고 유저 3이 들어왔다. 그대로인 유저 1은 다시 보내지 않는다
+        sessionRegistry.registerSession("s3", 3L);
+        sessionRegistry.subscribe("s3", 10L);
+        sessionRegistry.removeSession("s2");
+        presenceService.flush().block();
+
+        // 바뀐 방이 없으면 Redis 를 부르지 않는다
+        presenceService.flush().block();
+
+        ArgumentCaptor<List<String>> args = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), eq(List.of("chat:room:10:presence")), args.capture());
+        // ttl(ms), 추가할 수, 추가할 유저, 뺄 유저
+        assertThat(args.getAllValues().get(0)).containsExactly("45000", "2", "1", "2");
+        assertThat(args.getAllValues().get(1)).containsExactly("45000", "1", "3", "2");
+
+        ArgumentCaptor<String> frames = ArgumentCaptor.forClass(String.class);
+        verify(redisPubSubService, times(2)).publishToRoom(eq(10L), frames.capture());
+        assertThat(frames.getAllValues().get(1)).contains("\"joined\":[3]", "\"left\":[2]");
+    }
+}
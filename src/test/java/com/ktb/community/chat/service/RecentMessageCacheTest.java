@@ -0,0 +1,87 @@
+package com.ktb.community.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ktb.community.chat.dto.ChatMessageDto;
+import com.ktb.community.chat.repository.ChatMessageRepository;
+import com.ktb.community.chat.repository.ChatRoomRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveListOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RecentMessageCacheTest {
+
+    private static final String LIST_KEY = "chat:room:7:recent";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ReactiveListOperations<String, String> listOps = mock(ReactiveListOperations.class);
+    private final RecentMessageCache cache = new RecentMessageCache(redisTemplate, objectMapper,
+            mock(ChatRoomRepository.class), mock(ChatMessageRepository.class), 100, 60);
+
+    @Test
+    void get_끝_표시가_없으면_채워지지_않은_목록으로_보고_비운다() throws Exception {
+        // 만료/축출 뒤 추가만 된 목록: 방 전체가 아닌데 N건 미만이다
+        givenList(entries(3, 2));
+
+        assertThat(cache.get(7L).blockOptional()).isEmpty();
+    }
+
+    @Test
+    void get_LOADED_표시는_불완전_COMPLETE_표시는_방_전체로_읽는다() throws Exception {
+        List<String> loaded = entries(3, 5, 4, 3);
+        loaded.add(RecentMessageCache.MARKER_LOADED);
+        givenList(loaded);
+
+        RecentMessageCache.Snapshot snapshot = cache.get(7L).block();
+        assertThat(snapshot.complete()).isFalse();
+        // 중복 제거 + 최신순
+        assertThat(snapshot.newestFirst()).extracting(ChatMessageDto::getMessageId).containsExactly(5L, 4L, 3L);
+
+        List<String> complete = entries(2, 1);
+        complete.add(RecentMessageCache.MARKER_COMPLETE);
+        givenList(complete);
+
+        snapshot = cache.get(7L).block();
+        assertThat(snapshot.complete()).isTrue();
+        assertThat(snapshot.newestFirst()).extracting(ChatMessageDto::getMessageId).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void append_실패하면_목록을_지워_다음_조회에서_DB로_다시_채운다() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.error(new IllegalStateException("redis timeout")));
+        when(redisTemplate.delete(LIST_KEY)).thenReturn(Mono.just(1L));
+
+        cache.append(ChatMessageDto.builder().roomId(7L).messageId(9L).message("hi").build()).block();
+
+        verify(redisTemplate).delete(LIST_KEY);
+    }
+
+    private void givenList(List<String> rawEntries) {
+        when(redisTemplate.opsForList()).thenReturn(listOps);
+        when(listOps.range(LIST_KEY, 0, -1)).thenReturn(Flux.fromIterable(rawEntries));
+    }
+
+    private List<String> entries(long... messageIds) throws Exception {
+        List<String> raw = new ArrayList<>();
+        for (long id : messageIds) {
+            raw.add(objectMapper.writeValueAsString(
+                    ChatMessageDto.builder().roomId(7L).messageId(id).message("m" + id).build()));
+        }
+        return raw;
+    }
+}
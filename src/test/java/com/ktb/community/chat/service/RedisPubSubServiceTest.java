@@ -0,0 +1,89 @@
+package com.ktb.community.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ktb.community.chat.mapper.InboundFrameReader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RedisPubSubServiceTest {
+
+    private final ReactiveRedisMessageListenerContainer listenerContainer = mock(ReactiveRedisMessageListenerContainer.class);
+    private final SessionRegistry sessionRegistry =
+            new SessionRegistry(new SimpleMeterRegistry(), 16, SessionOutbox.OverflowPolicy.DROP_OLDEST, 1000, 2);
+    private final RedisPubSubService service = new RedisPubSubService(mock(ReactiveStringRedisTemplate.class),
+            listenerContainer, sessionRegistry, mock(UserProfileCache.class), mock(RoomMembershipIndex.class),
+            new ObjectMapper(), new InboundFrameReader(new ObjectMapper()), new SimpleMeterRegistry());
+
+    // receiveLater 호출마다: SUBSCRIBE 확인 신호와, 그 구독의 해제(cancel) 여부
+    private final List<Sinks.One<Flux<ReactiveSubscription.Message<String, String>>>> confirmations = new ArrayList<>();
+    private final List<AtomicBoolean> cancelled = new ArrayList<>();
+    // receiveLater 가 호출된 순간 앞선 구독들이 모두 해제되어 있었는지
+    private final List<Boolean> previousCancelledAtSubscribe = new ArrayList<>();
+
+    RedisPubSubServiceTest() {
+        when(listenerContainer.receiveLater(any(ChannelTopic.class), any(ChannelTopic.class))).thenAnswer(invocation -> {
+            previousCancelledAtSubscribe.add(cancelled.stream().allMatch(AtomicBoolean::get));
+            Sinks.One<Flux<ReactiveSubscription.Message<String, String>>> confirmation = Sinks.one();
+            AtomicBoolean cancel = new AtomicBoolean();
+            confirmations.add(confirmation);
+            cancelled.add(cancel);
+            return confirmation.asMono()
+                    .map(messages -> messages.doOnCancel(() -> cancel.set(true)));
+        });
+    }
+
+    @Test
+    void awaitRoomSubscribed_SUBSCRIBE가_확인된_뒤에_완료된다() {
+        service.onRoomActive(1L);
+        CompletableFuture<Boolean> ready = service.awaitRoomSubscribed(1L).toFuture();
+        assertThat(ready).isNotDone();
+
+        confirmations.get(0).tryEmitValue(Flux.never());
+
+        assertThat(ready).isCompletedWithValue(true);
+    }
+
+    @Test
+    void 끊었다가_바로_다시_구독하면_이전_구독을_해제한_뒤에_SUBSCRIBE_한다() {
+        service.onRoomActive(1L);
+        confirmations.get(0).tryEmitValue(Flux.never());
+
+        service.onRoomIdle(1L);
+        service.onRoomActive(1L);
+
+        assertThat(confirmations).hasSize(2);
+        assertThat(previousCancelledAtSubscribe).containsExactly(true, true);
+    }
+
+    @Test
+    void 확인_전에_끊기면_확인을_기다렸다가_해제하고_다시_구독한다() {
+        service.onRoomActive(1L);
+        service.onRoomIdle(1L);
+        service.onRoomActive(1L);
+        // 첫 SUBSCRIBE 가 확인되기 전에는 다시 구독하지 않는다
+        assertThat(confirmations).hasSize(1);
+
+        confirmations.get(0).tryEmitValue(Flux.never());
+
+        assertThat(cancelled.get(0)).isTrue();
+        assertThat(confirmations).hasSize(2);
+        assertThat(previousCancelledAtSubscribe).containsExactly(true, true);
+    }
+}
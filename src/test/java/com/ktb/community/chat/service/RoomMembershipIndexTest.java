@@ -0,0 +1,69 @@
+package com.ktb.community.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ktb.community.chat.dto.RoomMembershipEventDto;
+import com.ktb.community.chat.repository.ChatParticipantRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoomMembershipIndexTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChatParticipantRepository chatParticipantRepository = mock(ChatParticipantRepository.class);
+    private final ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+    private final RoomMembershipIndex index =
+            new RoomMembershipIndex(chatParticipantRepository, redisTemplate, objectMapper, 1000, 5);
+
+    @Test
+    void 참여와_나가기_이벤트를_받은_순서대로_반영한다() throws Exception {
+        when(chatParticipantRepository.findUserIdsByChatRoomId(10L)).thenReturn(List.of(3L, 1L));
+        assertThat(index.members(10L).block()).containsExactly(1L, 3L);
+
+        index.handleEvent(event(RoomMembershipEventDto.JOIN, 10L, 2L)).block();
+        index.handleEvent(event(RoomMembershipEventDto.LEAVE, 10L, 3L)).block();
+        assertThat(index.members(10L).block()).containsExactly(1L, 2L);
+
+        // 같은 유저의 나가기 -> 다시 참여는 참여자, 참여 -> 나가기는 참여자가 아니다
+        index.handleEvent(event(RoomMembershipEventDto.LEAVE, 10L, 1L)).block();
+        index.handleEvent(event(RoomMembershipEventDto.JOIN, 10L, 1L)).block();
+        index.handleEvent(event(RoomMembershipEventDto.JOIN, 10L, 4L)).block();
+        index.handleEvent(event(RoomMembershipEventDto.LEAVE, 10L, 4L)).block();
+        assertThat(index.isMember(10L, 1L).block()).isTrue();
+        assertThat(index.isMember(10L, 4L).block()).isFalse();
+
+        // 인덱스가 DB를 다시 읽지 않았다
+        verify(chatParticipantRepository, times(1)).findUserIdsByChatRoomId(10L);
+    }
+
+    @Test
+    void 로딩_중에_들어온_이벤트가_있으면_낡은_결과를_캐시하지_않는다() {
+        when(redisTemplate.convertAndSend(eq(RoomMembershipIndex.MEMBERSHIP_CHANNEL), anyString()))
+                .thenReturn(Mono.just(1L));
+        // DB를 읽는 사이에 유저 2가 나갔다
+        when(chatParticipantRepository.findUserIdsByChatRoomId(20L))
+                .thenAnswer(invocation -> {
+                    index.publishLeave(20L, 2L).block();
+                    return List.of(1L, 2L);
+                })
+                .thenReturn(List.of(1L));
+
+        assertThat(index.members(20L).block()).containsExactly(1L, 2L);
+        assertThat(index.isMember(20L, 2L).block()).isFalse();
+        verify(chatParticipantRepository, times(2)).findUserIdsByChatRoomId(20L);
+    }
+
+    private String event(String type, Long roomId, Long userId) throws Exception {
+        return objectMapper.writeValueAsString(new RoomMembershipEventDto(type, roomId, userId));
+    }
+}
@@ -0,0 +1,99 @@
+package com.ktb.community.chat.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionOutboxTest {
+
+    private final SessionOutbox.Metrics metrics = new SessionOutbox.Metrics(new SimpleMeterRegistry());
+
+    @Test
+    void DROP_OLDEST_가장_오래된_프레임을_버린다() {
+        SessionOutbox outbox = new SessionOutbox(2, SessionOutbox.OverflowPolicy.DROP_OLDEST, metrics);
+        ByteBuf first = frame("1");
+        outbox.offer(first);
+        outbox.offer(frame("2"));
+        outbox.offer(frame("3"));
+
+        assertThat(first.refCnt()).isZero();
+        assertThat(drain(outbox, 10)).containsExactly("2", "3");
+        assertThat(metrics.getBufferedBytes()).isZero();
+    }
+
+    @Test
+    void DROP_NEWEST_버린_자리에_gap_표시를_보낸다() {
+        SessionOutbox outbox = new SessionOutbox(2, SessionOutbox.OverflowPolicy.DROP_NEWEST, metrics);
+        outbox.offer(frame("1"));
+        outbox.offer(frame("2"));
+        ByteBuf dropped = frame("3");
+        assertThat(outbox.offer(dropped)).isFalse();
+        assertThat(dropped.refCnt()).isZero();
+        outbox.offer(frame("4"));
+
+        // 대기열이 비면 버린 프레임 수와 함께 gap 표시가 나간다
+        assertThat(drain(outbox, 10)).containsExactly("1", "2", "{\"type\":\"gap\",\"dropped\":2}");
+    }
+
+    @Test
+    void 일시_프레임은_일반_프레임_뒤에_보내고_넘치면_일시_프레임끼리_버린다() {
+        SessionOutbox outbox = new SessionOutbox(2, SessionOutbox.OverflowPolicy.DROP_OLDEST, metrics);
+        ByteBuf oldestTyping = frame("typing-0");
+        outbox.offerEphemeral(oldestTyping);
+        for (int i = 1; i <= 8; i++) {
+            outbox.offerEphemeral(frame("typing-" + i));
+        }
+        outbox.offer(frame("1"));
+        outbox.offer(frame("2"));
+
+        assertThat(oldestTyping.refCnt()).isZero();
+        List<String> sent = drain(outbox, 20);
+        assertThat(sent).startsWith("1", "2", "typing-1").endsWith("typing-8").hasSize(10);
+        assertThat(metrics.getBufferedBytes()).isZero();
+    }
+
+    @Test
+    void DISCONNECT_넘치면_끊기_신호를_보내고_이후_프레임을_거절한다() {
+        SessionOutbox outbox = new SessionOutbox(1, SessionOutbox.OverflowPolicy.DISCONNECT, metrics);
+        boolean[] disconnected = new boolean[1];
+        outbox.onOverflowDisconnect().subscribe(null, null, () -> disconnected[0] = true);
+
+        outbox.offer(frame("1"));
+        assertThat(outbox.offer(frame("2"))).isFalse();
+        assertThat(disconnected[0]).isTrue();
+        assertThat(outbox.offer(frame("3"))).isFalse();
+
+        outbox.close();
+        assertThat(metrics.getBufferedBytes()).isZero();
+    }
+
+    private static ByteBuf frame(String payload) {
+        return Unpooled.copiedBuffer(payload, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> drain(SessionOutbox outbox, int count) {
+        List<String> received = new ArrayList<>();
+        outbox.asFlux().subscribe(new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(count);
+            }
+
+            @Override
+            protected void hookOnNext(ByteBuf value) {
+                received.add(value.toString(StandardCharsets.UTF_8));
+                value.release();
+            }
+        });
+        return received;
+    }
+}
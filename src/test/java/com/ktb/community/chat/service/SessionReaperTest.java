@@ -0,0 +1,63 @@
+package com.ktb.community.chat.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionReaperTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionRegistry sessionRegistry =
+            new SessionRegistry(meterRegistry, 16, SessionOutbox.OverflowPolicy.DROP_OLDEST, 1000, 1);
+
+    @Test
+    void sweep_은_닫힌_연결과_응답없는_연결을_사유별로_정리한다() {
+        SessionReaper reaper = new SessionReaper(sessionRegistry, meterRegistry, 20, 60, 30);
+        List<SessionReaper.Reason> closed = new ArrayList<>();
+        sessionRegistry.registerSession("open", 1L, liveSession(true, closed));
+        sessionRegistry.registerSession("half-closed", 2L, liveSession(false, closed));
+        sessionRegistry.subscribe("open", 10L);
+        sessionRegistry.subscribe("half-closed", 10L);
+
+        reaper.sweep();
+
+        assertThat(sessionRegistry.getConnections()).extracting(SessionRegistry.SessionConnection::getSessionId)
+                .containsExactly("open");
+        assertThat(closed).containsExactly(SessionReaper.Reason.STALE);
+        assertThat(reaped("stale")).isEqualTo(1.0);
+
+        // idle-timeout 0: 남은 세션은 응답 없는 세션으로 정리된다
+        SessionReaper strict = new SessionReaper(sessionRegistry, meterRegistry, 20, 0, 30);
+        strict.sweep();
+
+        assertThat(sessionRegistry.getConnections()).isEmpty();
+        assertThat(closed).containsExactly(SessionReaper.Reason.STALE, SessionReaper.Reason.IDLE);
+        assertThat(reaped("idle")).isEqualTo(1.0);
+        assertThat(reaped("orphan")).isZero();
+    }
+
+    private double reaped(String reason) {
+        return meterRegistry.get("chat.session.reaped").tag("reason", reason).counter().count();
+    }
+
+    private static SessionRegistry.LiveSession liveSession(boolean open, List<SessionReaper.Reason> closed) {
+        return new SessionRegistry.LiveSession() {
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public Mono<Void> close(SessionReaper.Reason reason) {
+                closed.add(reason);
+                return Mono.empty();
+            }
+        };
+    }
+}
@@ -0,0 +1,161 @@
+package com.ktb.community.chat.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionRegistryTest {
+
+    private final SessionRegistry sessionRegistry =
+            new SessionRegistry(new SimpleMeterRegistry(), 16, SessionOutbox.OverflowPolicy.DROP_OLDEST, 1000, 2);
+
+    @Test
+    void broadcast_한번_인코딩한_버퍼를_세션들이_공유한다() {
+        List<ByteBuf> received = new ArrayList<>();
+        for (String sessionId : List.of("s1", "s2")) {
+            sessionRegistry.registerSession(sessionId, 1L).getOutbox().asFlux().subscribe(received::add);
+            sessionRegistry.subscribe(sessionId, 10L);
+        }
+
+        sessionRegistry.broadcast(10L, "{\"roomId\":10}");
+
+        assertThat(received).hasSize(2);
+        // 같은 버퍼의 duplicate 이며, 원본 참조는 세션 수만큼 남아 있다 (브로드캐스트 쪽 참조는 해제됨)
+        ByteBuf shared = root(received.get(0));
+        assertThat(root(received.get(1))).isSameAs(shared);
+        assertThat(shared.refCnt()).isEqualTo(2);
+        assertThat(received.get(1).toString(StandardCharsets.UTF_8)).isEqualTo("{\"roomId\":10}");
+
+        received.forEach(ByteBuf::release);
+        assertThat(shared.refCnt()).isZero();
+    }
+
+    @Test
+    void 전송되지_못한_프레임은_취소시_해제된다() {
+        List<ByteBuf> pending = new ArrayList<>();
+        BaseSubscriber<ByteBuf> stalled = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // 요청하지 않는 느린 클라이언트
+            }
+        };
+        sessionRegistry.registerSession("s1", 1L).getOutbox().asFlux()
+                .doOnNext(pending::add)
+                .doOnDiscard(ByteBuf.class, ReferenceCountUtil::safeRelease)
+                .subscribe(stalled);
+        sessionRegistry.subscribe("s1", 10L);
+
+        ByteBuf[] captured = new ByteBuf[1];
+        sessionRegistry.registerSession("probe", 2L).getOutbox().asFlux().subscribe(buffer -> captured[0] = buffer);
+        sessionRegistry.subscribe("probe", 10L);
+
+        sessionRegistry.broadcast(10L, "hello");
+        ByteBuf shared = root(captured[0]);
+        assertThat(shared.refCnt()).isEqualTo(2);
+
+        stalled.dispose();
+        assertThat(pending).isEmpty();
+        assertThat(shared.refCnt()).isEqualTo(1);
+        captured[0].release();
+        assertThat(shared.refCnt()).isZero();
+    }
+
+    @Test
+    void 재전송_동안_잡아둔_실시간_프레임은_재전송_프레임_뒤에_나간다() {
+        List<String> received = new ArrayList<>();
+        SessionRegistry.SessionConnection connection = sessionRegistry.registerSession("s1", 1L);
+        connection.getOutbox().asFlux().subscribe(buffer -> {
+            received.add(buffer.toString(StandardCharsets.UTF_8));
+            buffer.release();
+        });
+
+        SessionRegistry.LiveHold hold = connection.holdLive(10L);
+        sessionRegistry.subscribe("s1", 10L);
+        sessionRegistry.subscribe("s1", 20L);
+        sessionRegistry.broadcast(10L, "live-1");
+        sessionRegistry.broadcast(20L, "other-room");
+        sessionRegistry.broadcast(10L, "live-2");
+        // 재전송 중이 아닌 방의 프레임은 잡지 않는다
+        assertThat(received).containsExactly("other-room");
+        received.clear();
+
+        assertThat(hold.release("replay")).isTrue();
+        // 두 번째 release 는 무시된다
+        hold.release(null);
+        sessionRegistry.broadcast(10L, "live-3");
+
+        assertThat(received).containsExactly("replay", "live-1", "live-2", "live-3");
+    }
+
+    @Test
+    void 구독이_바뀌면_방을_알리고_로컬_유저는_세션이_아닌_유저_단위로_센다() {
+        List<Long> changed = new ArrayList<>();
+        sessionRegistry.setSubscriptionListener(changed::add);
+        sessionRegistry.registerSession("s1", 1L);
+        sessionRegistry.registerSession("s2", 1L);
+        sessionRegistry.registerSession("s3", 2L);
+        sessionRegistry.subscribe("s1", 10L);
+        sessionRegistry.subscribe("s2", 10L);
+        sessionRegistry.subscribe("s3", 10L);
+
+        assertThat(sessionRegistry.getLocalUserIds(10L)).containsExactlyInAnyOrder(1L, 2L);
+
+        sessionRegistry.removeSession("s1");
+        sessionRegistry.unsubscribe("s3", 10L);
+
+        assertThat(sessionRegistry.getLocalUserIds(10L)).containsExactly(1L);
+        assertThat(changed).containsExactly(10L, 10L, 10L, 10L, 10L);
+    }
+
+    @Test
+    void 큰_방은_병렬로_보내도_세션별_순서가_유지된다() throws InterruptedException {
+        SessionRegistry registry =
+                new SessionRegistry(new SimpleMeterRegistry(), 256, SessionOutbox.OverflowPolicy.DROP_OLDEST, 3, 2);
+        int sessionCount = 5;
+        int messageCount = 100;
+        List<List<String>> received = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(sessionCount * messageCount);
+        for (int i = 0; i < sessionCount; i++) {
+            List<String> payloads = Collections.synchronizedList(new ArrayList<>());
+            received.add(payloads);
+            registry.registerSession("s" + i, (long) i).getOutbox().asFlux().subscribe(buffer -> {
+                payloads.add(buffer.toString(StandardCharsets.UTF_8));
+                buffer.release();
+                done.countDown();
+            });
+            registry.subscribe("s" + i, 10L);
+        }
+
+        for (int n = 0; n < messageCount; n++) {
+            registry.broadcast(10L, String.valueOf(n));
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        List<String> expected = new ArrayList<>();
+        for (int n = 0; n < messageCount; n++) {
+            expected.add(String.valueOf(n));
+        }
+        received.forEach(payloads -> assertThat(payloads).containsExactlyElementsOf(expected));
+        registry.shutdown();
+    }
+
+    // 누수 탐지가 샘플링한 버퍼는 한 겹 더 감싸져 있으므로 원본까지 벗긴다
+    private static ByteBuf root(ByteBuf buffer) {
+        while (buffer.unwrap() != null) {
+            buffer = buffer.unwrap();
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,103 @@
+package com.ktb.community.chat.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SnowflakeIdGeneratorTest {
+
+    private final ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+    private SnowflakeIdGenerator generator;
+
+    @AfterEach
+    void tearDown() {
+        if (generator != null) {
+            generator.stop();
+        }
+    }
+
+    @Test
+    void nextId_여러_스레드에서_발급해도_겹치지_않고_스레드마다_증가한다() throws Exception {
+        generator = leasedGenerator(30);
+        int threads = 8;
+        int perThread = 20_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                long[] ids = new long[perThread];
+                for (int i = 0; i < perThread; i++) {
+                    ids[i] = generator.nextId();
+                }
+                return ids;
+            }));
+        }
+
+        Set<Long> all = new HashSet<>();
+        for (Future<long[]> future : futures) {
+            long[] ids = future.get();
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) {
+                    assertThat(ids[i]).isGreaterThan(ids[i - 1]);
+                }
+                // 노드 ID 자리는 임대한 번호 그대로다
+                assertThat((ids[i] >>> 12) & 1023).isEqualTo(generator.getNodeId());
+                all.add(ids[i]);
+            }
+        }
+        executor.shutdown();
+        assertThat(all).hasSize(threads * perThread);
+    }
+
+    @Test
+    void nextId_갱신이_실패해_임대_기한이_지나면_발급을_멈추고_갱신되면_다시_발급한다() throws Exception {
+        generator = leasedGenerator(1);
+        generator.nextId();
+
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.error(new IllegalStateException("redis down")));
+        Thread.sleep(1_200);
+
+        assertThatThrownBy(generator::nextId)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("expired");
+
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(1L));
+        generator.renew().block(Duration.ofSeconds(1));
+        assertThat(generator.nextId()).isPositive();
+    }
+
+    @SuppressWarnings("unchecked")
+    private SnowflakeIdGenerator leasedGenerator(long leaseTtlSeconds) {
+        ReactiveValueOperations<String, String> valueOps = mock(ReactiveValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(1L));
+
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(redisTemplate, leaseTtlSeconds);
+        idGenerator.start();
+        return idGenerator;
+    }
+}
@@ -0,0 +1,31 @@
+package com.ktb.community.chat.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void burst_만큼_연속으로_쓰고_이후에는_rate_만큼_채워진다() {
+        // 초당 10개 (100ms 마다 1개), 최대 3개
+        TokenBucket bucket = new TokenBucket(10, 3);
+        long now = System.nanoTime();
+
+        assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.tryAcquire(now)).isFalse();
+
+        assertThat(bucket.tryAcquire(now + 50_000_000L)).isFalse();
+        assertThat(bucket.tryAcquire(now + 100_000_000L)).isTrue();
+        assertThat(bucket.tryAcquire(now + 100_000_000L)).isFalse();
+
+        // 오래 쉬어도 burst 이상 쌓이지 않는다
+        long later = now + 10_000_000_000L;
+        assertThat(bucket.tryAcquire(later)).isTrue();
+        assertThat(bucket.tryAcquire(later)).isTrue();
+        assertThat(bucket.tryAcquire(later)).isTrue();
+        assertThat(bucket.tryAcquire(later)).isFalse();
+    }
+}
@@ -0,0 +1,93 @@
+package com.ktb.community.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ktb.community.chat.dto.ChatTypingFrameDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TypingIndicatorServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RedisPubSubService redisPubSubService = mock(RedisPubSubService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TypingIndicatorService service =
+            new TypingIndicatorService(redisPubSubService, objectMapper, meterRegistry, 60_000, 500);
+    // 채널 -> 발행한 프레임
+    private final List<String[]> published = Collections.synchronizedList(new ArrayList<>());
+
+    TypingIndicatorServiceTest() {
+        when(redisPubSubService.publish(anyString(), anyString())).thenAnswer(invocation -> {
+            published.add(new String[]{invocation.getArgument(0), invocation.getArgument(1)});
+            return Mono.just(1L);
+        });
+    }
+
+    @Test
+    void throttle_안의_반복은_버리고_창마다_방별로_한_프레임으로_모은다() throws Exception {
+        service.typing(10L, 1L);
+        service.typing(10L, 1L);
+        service.typing(10L, 2L);
+        service.typing(20L, 1L);
+        service.flush().block();
+
+        assertThat(published).hasSize(2);
+        for (String[] message : published) {
+            ChatTypingFrameDto frame = objectMapper.readValue(message[1], ChatTypingFrameDto.class);
+            assertThat(message[0]).isEqualTo(RedisPubSubService.typingChannel(frame.getRoomId()));
+            if (frame.getRoomId() == 10L) {
+                assertThat(frame.getUserIds()).containsExactlyInAnyOrder(1L, 2L);
+            } else {
+                assertThat(frame.getUserIds()).containsExactly(1L);
+            }
+        }
+        assertThat(meterRegistry.counter("chat.typing.throttled").count()).isEqualTo(1.0);
+
+        // throttle 안이면 다음 창에도 다시 보내지 않는다
+        published.clear();
+        service.typing(10L, 2L);
+        service.flush().block();
+        assertThat(published).isEmpty();
+    }
+
+    @Test
+    void flush와_동시에_들어온_입력도_잃지_않는다() throws Exception {
+        int threads = 4;
+        int perThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long base = (long) t * perThread;
+            futures.add(executor.submit(() -> {
+                for (long userId = base; userId < base + perThread; userId++) {
+                    service.typing(10L, userId);
+                }
+            }));
+        }
+        while (futures.stream().anyMatch(future -> !future.isDone())) {
+            service.flush().block();
+        }
+        executor.shutdown();
+        service.flush().block();
+
+        Set<Long> userIds = new HashSet<>();
+        for (String[] message : published) {
+            userIds.addAll(objectMapper.readValue(message[1], ChatTypingFrameDto.class).getUserIds());
+        }
+        assertThat(userIds).hasSize(threads * perThread);
+    }
+}